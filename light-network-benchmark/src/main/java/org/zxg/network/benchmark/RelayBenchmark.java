@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zxg.network.core.Bytes;
+import org.zxg.network.core.Client;
+import org.zxg.network.core.Connection;
+import org.zxg.network.core.EventLoop;
+import org.zxg.network.core.Relay;
+import org.zxg.network.core.Server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class RelayBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelayBenchmark.class);
+
+    private final byte[] message;
+
+    public static void main(String[] args) throws Exception {
+        final int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        final int messageLength = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+        try (EventLoop loop = new EventLoop(); Server backend = new Server(loop); Server proxy = new Server(loop)) {
+            final InetAddress address = InetAddress.getLoopbackAddress();
+            backend.bind(new InetSocketAddress(address, 0));
+            backend.serve((Function<Connection, CompletionStage<?>>) connection ->
+                    echo(connection, new Bytes(Relay.DEFAULT_BUFFER_SIZE, false)));
+            final SocketAddress backendAddress = backend.channel().getLocalAddress();
+            proxy.bind(new InetSocketAddress(address, 0));
+            proxy.serve((Function<Connection, CompletionStage<?>>) connection ->
+                    relay(loop, connection, backendAddress));
+            final RelayBenchmark benchmark = new RelayBenchmark(new byte[messageLength]);
+            final Result direct = benchmark.run(loop, backendAddress, seconds, TimeUnit.SECONDS);
+            final Result relayed = benchmark.run(loop, proxy.channel().getLocalAddress(), seconds, TimeUnit.SECONDS);
+            System.out.println("direct: " + direct);
+            System.out.println("relayed: " + relayed);
+            System.out.printf("added latency, p50: %.1f us, p99: %.1f us%n",
+                    (relayed.percentileNanos(50) - direct.percentileNanos(50)) / 1e3,
+                    (relayed.percentileNanos(99) - direct.percentileNanos(99)) / 1e3);
+        }
+    }
+
+    private static CompletionStage<Void> echo(Connection connection, Bytes buffer) {
+        return connection.read(buffer).thenCompose(bytes -> {
+            if (0 == bytes.length()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return connection.write(bytes).thenCompose(written -> echo(connection, buffer));
+        });
+    }
+
+    private static CompletionStage<Void> relay(EventLoop loop, Connection connection, SocketAddress backend) {
+        final Client upstream;
+        try {
+            upstream = new Client(loop);
+            upstream.channel().setOption(StandardSocketOptions.TCP_NODELAY, true);
+            connection.channel().setOption(StandardSocketOptions.TCP_NODELAY, true);
+        } catch (IOException exc) {
+            final CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(exc);
+            return failed;
+        }
+        return upstream.connect(backend)
+                .thenCompose(connected -> connection.pipe(upstream).future())
+                .whenComplete((result, exc) -> {
+                    try {
+                        upstream.close();
+                    } catch (IOException closeExc) {
+                        logger.error(closeExc.getMessage(), closeExc);
+                    }
+                });
+    }
+
+    public RelayBenchmark(byte[] message) {
+        this.message = message;
+    }
+
+    public Result run(EventLoop loop, SocketAddress remote, long duration, TimeUnit unit) throws Exception {
+        try (Client client = new Client(loop)) {
+            client.channel().setOption(StandardSocketOptions.TCP_NODELAY, true);
+            client.connect(remote).get();
+            final Worker worker = new Worker(client);
+            final long begin = System.nanoTime();
+            worker.start(begin + unit.toNanos(duration)).get();
+            return worker.result(System.nanoTime() - begin);
+        }
+    }
+
+    public static class Result {
+
+        private final int roundTrips;
+        private final long elapsedNanos;
+        private final long[] sortedLatencies;
+
+        Result(int roundTrips, long elapsedNanos, long[] sortedLatencies) {
+            this.roundTrips = roundTrips;
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatencies = sortedLatencies;
+        }
+
+        public int roundTrips() {
+            return roundTrips;
+        }
+
+        public double roundTripsPerSecond() {
+            return roundTrips * 1e9 / elapsedNanos;
+        }
+
+        public long percentileNanos(double percentile) {
+            if (0 == sortedLatencies.length) {
+                return 0L;
+            }
+            final int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("round trips: %d, %.1f rt/s, p50: %.1f us, p99: %.1f us, max: %.1f us",
+                    roundTrips, roundTripsPerSecond(),
+                    percentileNanos(50) / 1e3, percentileNanos(99) / 1e3, percentileNanos(100) / 1e3);
+        }
+    }
+
+    private class Worker {
+
+        private final Client client;
+        private final Bytes request = new Bytes(message, false);
+        private final Bytes response = new Bytes(message.length, false);
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private long deadline;
+        private long[] latencies = new long[1024];
+        private int latencyCount = 0;
+
+        Worker(Client client) {
+            this.client = client;
+        }
+
+        CompletableFuture<Void> start(long deadline) {
+            this.deadline = deadline;
+            next();
+            return future;
+        }
+
+        private void next() {
+            final long sentAt = System.nanoTime();
+            if (sentAt >= deadline) {
+                future.complete(null);
+                return;
+            }
+            request.buffer().rewind();
+            client.write(request)
+                    .thenCompose(written -> client.readExactly(response, message.length))
+                    .whenComplete((bytes, exc) -> {
+                        if (exc != null) {
+                            future.completeExceptionally(exc);
+                        } else {
+                            record(System.nanoTime() - sentAt);
+                            next();
+                        }
+                    });
+        }
+
+        private void record(long latency) {
+            if (latencyCount == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            }
+            latencies[latencyCount++] = latency;
+        }
+
+        Result result(long elapsedNanos) {
+            final long[] sortedLatencies = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sortedLatencies);
+            return new Result(latencyCount, elapsedNanos, sortedLatencies);
+        }
+    }
+}
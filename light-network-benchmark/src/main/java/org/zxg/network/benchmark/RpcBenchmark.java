@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.benchmark;
+
+import org.zxg.network.core.Bytes;
+import org.zxg.network.core.Client;
+import org.zxg.network.core.Connection;
+import org.zxg.network.core.EventLoop;
+import org.zxg.network.core.Server;
+import org.zxg.network.core.rpc.RpcClient;
+import org.zxg.network.core.rpc.RpcServer;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class RpcBenchmark {
+
+    private final SocketAddress remote;
+    private final byte[] payload;
+
+    public static void main(String[] args) throws Exception {
+        final int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        final int window = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        final int payloadLength = args.length > 2 ? Integer.parseInt(args[2]) : 128;
+        try (EventLoop loop = new EventLoop(); Server echoServer = new Server(loop);
+             Server rpcServer = new Server(loop)) {
+            final InetAddress address = InetAddress.getLoopbackAddress();
+            echoServer.bind(new InetSocketAddress(address, 0));
+            echoServer.serve((Function<Connection, CompletionStage<?>>) connection ->
+                    echo(connection, new Bytes(payloadLength, false), payloadLength));
+            rpcServer.bind(new InetSocketAddress(address, 0));
+            new RpcServer(CompletableFuture::completedFuture,
+                    Math.max(window, RpcServer.DEFAULT_MAX_CONCURRENT_REQUESTS),
+                    RpcServer.DEFAULT_MAX_FRAME_LENGTH).serve(rpcServer);
+            final byte[] payload = new byte[payloadLength];
+            final Result sequential = new RpcBenchmark(echoServer.channel().getLocalAddress(), payload)
+                    .runSequential(loop, seconds, TimeUnit.SECONDS);
+            final Result pipelined = new RpcBenchmark(rpcServer.channel().getLocalAddress(), payload)
+                    .run(loop, window, seconds, TimeUnit.SECONDS);
+            System.out.println("sequential read/write: " + sequential);
+            System.out.println("pipelined rpc (" + window + "): " + pipelined);
+        }
+    }
+
+    private static CompletionStage<Void> echo(Connection connection, Bytes buffer, int length) {
+        return connection.readExactly(buffer, length).handle((bytes, exc) -> exc == null)
+                .thenCompose(read -> {
+                    if (!read) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return connection.write(buffer).thenCompose(written -> echo(connection, buffer, length));
+                });
+    }
+
+    public RpcBenchmark(SocketAddress remote, byte[] payload) {
+        this.remote = remote;
+        this.payload = payload;
+    }
+
+    public Result runSequential(EventLoop loop, long duration, TimeUnit unit) throws Exception {
+        try (Client client = new Client(loop)) {
+            client.channel().setOption(StandardSocketOptions.TCP_NODELAY, true);
+            client.connect(remote).get();
+            final SequentialWorker worker = new SequentialWorker(client);
+            final long begin = System.nanoTime();
+            worker.start(begin + unit.toNanos(duration)).get();
+            return worker.result(System.nanoTime() - begin);
+        }
+    }
+
+    public Result run(EventLoop loop, int window, long duration, TimeUnit unit) throws Exception {
+        try (Client client = new Client(loop)) {
+            client.channel().setOption(StandardSocketOptions.TCP_NODELAY, true);
+            client.connect(remote).get();
+            final RpcClient rpcClient = new RpcClient(client, window, RpcServer.DEFAULT_MAX_FRAME_LENGTH);
+            try {
+                final Worker worker = new Worker(rpcClient, window);
+                final long begin = System.nanoTime();
+                worker.start(begin + unit.toNanos(duration)).get();
+                return worker.result(System.nanoTime() - begin);
+            } finally {
+                rpcClient.close();
+            }
+        }
+    }
+
+    public static class Result {
+
+        private final int calls;
+        private final int failedCalls;
+        private final long elapsedNanos;
+        private final long[] sortedLatencies;
+
+        Result(int calls, int failedCalls, long elapsedNanos, long[] sortedLatencies) {
+            this.calls = calls;
+            this.failedCalls = failedCalls;
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatencies = sortedLatencies;
+        }
+
+        public int calls() {
+            return calls;
+        }
+
+        public int failedCalls() {
+            return failedCalls;
+        }
+
+        public double callsPerSecond() {
+            return calls * 1e9 / elapsedNanos;
+        }
+
+        public long percentileNanos(double percentile) {
+            if (0 == sortedLatencies.length) {
+                return 0L;
+            }
+            final int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("calls: %d, failed: %d, %.1f calls/s, p50: %.1f us, p99: %.1f us, max: %.1f us",
+                    calls, failedCalls, callsPerSecond(),
+                    percentileNanos(50) / 1e3, percentileNanos(99) / 1e3, percentileNanos(100) / 1e3);
+        }
+    }
+
+    private static class Latencies {
+
+        private long[] latencies = new long[1024];
+        private int latencyCount = 0;
+
+        void record(long latency) {
+            if (latencyCount == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            }
+            latencies[latencyCount++] = latency;
+        }
+
+        Result result(int failedCalls, long elapsedNanos) {
+            final long[] sortedLatencies = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sortedLatencies);
+            return new Result(latencyCount, failedCalls, elapsedNanos, sortedLatencies);
+        }
+    }
+
+    private class SequentialWorker {
+
+        private final Client client;
+        private final Bytes request = new Bytes(payload, false);
+        private final Bytes response = new Bytes(payload.length, false);
+        private final Latencies latencies = new Latencies();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private long deadline;
+
+        SequentialWorker(Client client) {
+            this.client = client;
+        }
+
+        CompletableFuture<Void> start(long deadline) {
+            this.deadline = deadline;
+            next();
+            return future;
+        }
+
+        private void next() {
+            final long sentAt = System.nanoTime();
+            if (sentAt >= deadline) {
+                future.complete(null);
+                return;
+            }
+            request.buffer().rewind();
+            client.write(request)
+                    .thenCompose(written -> client.readExactly(response, payload.length))
+                    .whenComplete((bytes, exc) -> {
+                        if (exc != null) {
+                            future.completeExceptionally(exc);
+                        } else {
+                            latencies.record(System.nanoTime() - sentAt);
+                            next();
+                        }
+                    });
+        }
+
+        Result result(long elapsedNanos) {
+            return latencies.result(0, elapsedNanos);
+        }
+    }
+
+    private class Worker {
+
+        private final RpcClient client;
+        private final int window;
+        private final Latencies latencies = new Latencies();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private long deadline;
+        private int failedCalls = 0;
+        private int outstandingCalls = 0;
+        private boolean stopped = false;
+
+        Worker(RpcClient client, int window) {
+            this.client = client;
+            this.window = window;
+        }
+
+        CompletableFuture<Void> start(long deadline) {
+            this.deadline = deadline;
+            for (int index = 0; index < window; ++index) {
+                call();
+            }
+            return future;
+        }
+
+        private void call() {
+            synchronized (this) {
+                if (stopped || System.nanoTime() >= deadline) {
+                    if (0 == outstandingCalls) {
+                        future.complete(null);
+                    }
+                    return;
+                }
+                ++outstandingCalls;
+            }
+            final long sentAt = System.nanoTime();
+            client.call(new Bytes(payload, false)).whenComplete((response, exc) -> {
+                final long latency = System.nanoTime() - sentAt;
+                synchronized (this) {
+                    --outstandingCalls;
+                    if (exc != null) {
+                        ++failedCalls;
+                        stopped = true;
+                    } else {
+                        latencies.record(latency);
+                    }
+                }
+                call();
+            });
+        }
+
+        synchronized Result result(long elapsedNanos) {
+            return latencies.result(failedCalls, elapsedNanos);
+        }
+    }
+}
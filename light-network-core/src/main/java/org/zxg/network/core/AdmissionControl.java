@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class AdmissionControl {
+
+    public enum Decision {
+        ADMIT, TOO_MANY_CONNECTIONS, RATE_LIMITED, OVERLOADED
+    }
+
+    public static final int DEFAULT_RATE_TABLE_SIZE = 4096;
+
+    private final int maxConnections;
+    private final int maxConnectionsPerSecondPerAddress;
+    private final long maxCompletionLatencyNanos;
+    private final long maxPendingWriteBytes;
+    private final AtomicLongArray rateTable;
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final LongAdder admittedCount = new LongAdder();
+    private final LongAdder[] rejectedCounts = new LongAdder[Decision.values().length];
+    private volatile Bytes rejectionMessage;
+
+    public AdmissionControl(int maxConnections, int maxConnectionsPerSecondPerAddress,
+                            long maxCompletionLatency, TimeUnit unit, long maxPendingWriteBytes) {
+        this(maxConnections, maxConnectionsPerSecondPerAddress, maxCompletionLatency, unit,
+                maxPendingWriteBytes, DEFAULT_RATE_TABLE_SIZE);
+    }
+
+    public AdmissionControl(int maxConnections, int maxConnectionsPerSecondPerAddress,
+                            long maxCompletionLatency, TimeUnit unit, long maxPendingWriteBytes,
+                            int rateTableSize) {
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerSecondPerAddress = maxConnectionsPerSecondPerAddress;
+        this.maxCompletionLatencyNanos = unit.toNanos(maxCompletionLatency);
+        this.maxPendingWriteBytes = maxPendingWriteBytes;
+        this.rateTable = new AtomicLongArray(BytesPool.sizeClass(rateTableSize));
+        for (int index = 0; index < rejectedCounts.length; ++index) {
+            rejectedCounts[index] = new LongAdder();
+        }
+    }
+
+    public Decision admit(SocketAddress remote, EventLoop loop) {
+        final Decision decision = decide(remote, loop);
+        if (Decision.ADMIT == decision) {
+            admittedCount.increment();
+        } else {
+            rejectedCounts[decision.ordinal()].increment();
+        }
+        return decision;
+    }
+
+    private Decision decide(SocketAddress remote, EventLoop loop) {
+        if (loop != null && isOverloaded(loop)) {
+            return Decision.OVERLOADED;
+        }
+        if (maxConnectionsPerSecondPerAddress > 0 && remote instanceof InetSocketAddress
+                && !acquireRate(((InetSocketAddress) remote).getAddress())) {
+            return Decision.RATE_LIMITED;
+        }
+        final int active = activeConnections.incrementAndGet();
+        if (maxConnections > 0 && active > maxConnections) {
+            activeConnections.decrementAndGet();
+            return Decision.TOO_MANY_CONNECTIONS;
+        }
+        return Decision.ADMIT;
+    }
+
+    private boolean isOverloaded(EventLoop loop) {
+        return (maxCompletionLatencyNanos > 0L && loop.completionLatencyNanos() > maxCompletionLatencyNanos)
+                || (maxPendingWriteBytes > 0L && loop.pendingWriteBytes() > maxPendingWriteBytes);
+    }
+
+    private boolean acquireRate(InetAddress address) {
+        if (null == address) {
+            return true;
+        }
+        int hash = 0;
+        for (byte element : address.getAddress()) {
+            hash = hash * 31 + element;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        final int index = hash & (rateTable.length() - 1);
+        final long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime()) & 0xffffffffL;
+        while (true) {
+            final long entry = rateTable.get(index);
+            final long entrySecond = entry >>> 32;
+            final long count = entrySecond == second ? entry & 0xffffffffL : 0L;
+            if (count >= maxConnectionsPerSecondPerAddress) {
+                return false;
+            }
+            if (rateTable.compareAndSet(index, entry, (second << 32) | (count + 1))) {
+                return true;
+            }
+        }
+    }
+
+    public long maxCompletionLatencyNanos() {
+        return maxCompletionLatencyNanos;
+    }
+
+    public void release() {
+        activeConnections.decrementAndGet();
+    }
+
+    public Bytes rejectionMessage() {
+        return rejectionMessage;
+    }
+
+    public void rejectionMessage(Bytes rejectionMessage) {
+        this.rejectionMessage = rejectionMessage;
+    }
+
+    public int activeConnections() {
+        return activeConnections.get();
+    }
+
+    public long admittedCount() {
+        return admittedCount.sum();
+    }
+
+    public long rejectedCount(Decision reason) {
+        return rejectedCounts[reason.ordinal()].sum();
+    }
+
+    public long rejectedCount() {
+        long count = 0L;
+        for (LongAdder rejectedCount : rejectedCounts) {
+            count += rejectedCount.sum();
+        }
+        return count;
+    }
+}
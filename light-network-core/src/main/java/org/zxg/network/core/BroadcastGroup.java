@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class BroadcastGroup {
+
+    private static final Logger logger = LoggerFactory.getLogger(BroadcastGroup.class);
+
+    public enum SlowMemberPolicy {
+        DROP, COALESCE
+    }
+
+    public static final int DEFAULT_MAX_PENDING_MESSAGES = 64;
+
+    private final Map<Connection, Member> members = new ConcurrentHashMap<>();
+    private final int maxPendingMessages;
+    private final SlowMemberPolicy policy;
+    private final LongAdder droppedMembers = new LongAdder();
+    private final LongAdder coalescedMessages = new LongAdder();
+
+    public BroadcastGroup() {
+        this(DEFAULT_MAX_PENDING_MESSAGES, SlowMemberPolicy.DROP);
+    }
+
+    public BroadcastGroup(int maxPendingMessages, SlowMemberPolicy policy) {
+        if (maxPendingMessages <= 0) {
+            throw new IllegalArgumentException(String.valueOf(maxPendingMessages));
+        }
+        this.maxPendingMessages = maxPendingMessages;
+        this.policy = policy;
+    }
+
+    public void add(Connection connection) {
+        members.putIfAbsent(connection, new Member(connection));
+    }
+
+    public void remove(Connection connection) {
+        final Member member = members.remove(connection);
+        if (member != null) {
+            member.clear();
+        }
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    public CompletableFuture<Void> broadcast(Bytes message) {
+        final Message shared = new Message(message);
+        for (Member member : members.values()) {
+            shared.retain();
+            member.offer(shared);
+        }
+        shared.release();
+        return shared.released;
+    }
+
+    public long droppedMembers() {
+        return droppedMembers.sum();
+    }
+
+    public long coalescedMessages() {
+        return coalescedMessages.sum();
+    }
+
+    private static class Message {
+
+        private final Bytes bytes;
+        private final AtomicInteger references = new AtomicInteger(1);
+        private final CompletableFuture<Void> released = new CompletableFuture<>();
+
+        Message(Bytes bytes) {
+            this.bytes = bytes;
+        }
+
+        void retain() {
+            references.incrementAndGet();
+        }
+
+        void release() {
+            if (0 == references.decrementAndGet()) {
+                bytes.free();
+                released.complete(null);
+            }
+        }
+    }
+
+    private class Member {
+
+        private final Connection connection;
+        private final ArrayDeque<Message> pendingMessages = new ArrayDeque<>();
+        private boolean writing = false;
+        private boolean closed = false;
+
+        Member(Connection connection) {
+            this.connection = connection;
+        }
+
+        void offer(Message message) {
+            synchronized (this) {
+                if (closed) {
+                    message.release();
+                    return;
+                }
+                if (writing) {
+                    if (pendingMessages.size() >= maxPendingMessages) {
+                        if (SlowMemberPolicy.DROP == policy) {
+                            message.release();
+                            drop();
+                            return;
+                        }
+                        coalescedMessages.add(pendingMessages.size());
+                        releasePending();
+                    }
+                    pendingMessages.add(message);
+                    return;
+                }
+                writing = true;
+            }
+            write(message);
+        }
+
+        private void write(Message message) {
+            final CompletableFuture<Bytes> written;
+            try {
+                written = connection.write(message.bytes.asReadOnly());
+            } catch (RuntimeException exc) {
+                message.release();
+                drop();
+                return;
+            }
+            written.whenComplete((bytes, exc) -> {
+                message.release();
+                if (exc != null) {
+                    drop();
+                    return;
+                }
+                final Message next;
+                synchronized (this) {
+                    next = pendingMessages.poll();
+                    if (null == next) {
+                        writing = false;
+                        return;
+                    }
+                }
+                write(next);
+            });
+        }
+
+        private void releasePending() {
+            Message message;
+            while ((message = pendingMessages.poll()) != null) {
+                message.release();
+            }
+        }
+
+        synchronized void clear() {
+            closed = true;
+            releasePending();
+        }
+
+        private void drop() {
+            if (members.remove(connection, this)) {
+                droppedMembers.increment();
+            }
+            clear();
+            try {
+                connection.close();
+            } catch (IOException exc) {
+                logger.error(exc.getMessage(), exc);
+            }
+        }
+    }
+}
@@ -16,8 +16,6 @@
  */
 package org.zxg.network.core;
 
-import sun.nio.ch.DirectBuffer;
-
 import java.nio.ByteBuffer;
 
 /**
@@ -25,7 +23,14 @@ import java.nio.ByteBuffer;
  */
 public class Bytes implements Cloneable {
 
-    private final ByteBuffer buffer;
+    public static final String DEFAULT_TAG = "Bytes";
+
+    private ByteBuffer buffer;
+    private final BytesPool pool;
+    private final int maxSize;
+    private final boolean view;
+    private final String tag;
+    private boolean freed = false;
 
     public static void copy(Bytes src, int srcIndex, Bytes dest, int destIndex, int length) {
         final ByteBuffer srcBuffer = src.buffer;
@@ -61,14 +66,55 @@ public class Bytes implements Cloneable {
         return newBytes;
     }
 
-    public Bytes(int length, boolean direct) {
+    static ByteBuffer allocate(int capacity, boolean direct, String tag) {
         if (direct) {
-            this.buffer = ByteBuffer.allocateDirect(length);
+            return DirectMemory.global().allocate(capacity, tag);
         } else {
-            this.buffer = ByteBuffer.allocate(length);
+            return ByteBuffer.allocate(capacity);
+        }
+    }
+
+    static void clean(ByteBuffer buffer, String tag) {
+        if (buffer.isDirect()) {
+            DirectMemory.global().free(buffer, tag);
         }
     }
 
+    public Bytes(int length, boolean direct) {
+        this(length, direct, length);
+    }
+
+    public Bytes(int length, boolean direct, int maxSize) {
+        this(length, direct, maxSize, DEFAULT_TAG);
+    }
+
+    public Bytes(int length, boolean direct, int maxSize, String tag) {
+        if (length > maxSize) {
+            throw new IllegalArgumentException(length + " > " + maxSize);
+        }
+        this.buffer = allocate(length, direct, tag);
+        this.pool = null;
+        this.maxSize = maxSize;
+        this.view = false;
+        this.tag = tag;
+    }
+
+    Bytes(BytesPool pool, ByteBuffer buffer, int maxSize) {
+        this.buffer = buffer;
+        this.pool = pool;
+        this.maxSize = maxSize;
+        this.view = false;
+        this.tag = pool.tag();
+    }
+
+    private Bytes(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.pool = null;
+        this.maxSize = buffer.capacity();
+        this.view = true;
+        this.tag = null;
+    }
+
     public Bytes(byte[] elements, boolean direct) {
         this(elements.length, direct);
         this.buffer.put(elements);
@@ -161,7 +207,7 @@ public class Bytes implements Cloneable {
     }
 
     public void content(byte[] content) {
-        buffer.clear();
+        clear();
         try {
             buffer.put(content);
         } finally {
@@ -177,10 +223,71 @@ public class Bytes implements Cloneable {
         return buffer.capacity();
     }
 
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public boolean isExpandable() {
+        return buffer.capacity() < maxSize;
+    }
+
+    public void expand(int minSize) throws BytesOverflowException {
+        if (minSize > maxSize) {
+            throw new BytesOverflowException(minSize, maxSize);
+        }
+        final int size = size();
+        if (minSize <= size) {
+            return;
+        }
+        final int newSize = (int) Math.min(maxSize,
+                Math.max(BytesPool.sizeClass(minSize), 2L * size));
+        final ByteBuffer newBuffer;
+        if (pool != null) {
+            newBuffer = pool.acquire(newSize);
+        } else {
+            newBuffer = allocate(newSize, isDirect(), tag);
+        }
+        final ByteBuffer oldBuffer = this.buffer;
+        final int position = oldBuffer.position();
+        final int limit = oldBuffer.limit();
+        final ByteBuffer content = oldBuffer.duplicate();
+        content.position(0);
+        newBuffer.put(content);
+        newBuffer.limit(limit);
+        newBuffer.position(position);
+        this.buffer = newBuffer;
+        release(oldBuffer);
+    }
+
+    public Bytes duplicate() {
+        return new Bytes(buffer.duplicate());
+    }
+
+    public Bytes asReadOnly() {
+        return new Bytes(buffer.asReadOnlyBuffer());
+    }
+
+    public boolean isReadOnly() {
+        return buffer.isReadOnly();
+    }
+
+    public boolean isView() {
+        return view;
+    }
+
+    ByteBuffer clear() {
+        buffer.clear();
+        if (maxSize < buffer.capacity()) {
+            buffer.limit(maxSize);
+        }
+        return buffer;
+    }
+
     @Override
     public Bytes clone() {
-        final Bytes other = new Bytes(size(), isDirect());
         final int length = length();
+        final int size = Math.max(length, Math.min(size(), maxSize));
+        final Bytes other = new Bytes(size, isDirect(), Math.max(size, maxSize));
         copy(this, 0, other, 0, length);
         other.buffer.limit(length);
         return other;
@@ -226,15 +333,34 @@ public class Bytes implements Cloneable {
         return buffer.isDirect();
     }
 
+    private void release(ByteBuffer buffer) {
+        if (pool != null) {
+            pool.release(buffer);
+        } else {
+            clean(buffer, tag);
+        }
+    }
+
     public void free() {
-        if (buffer.isDirect()) {
-            clean();
+        if (!view && !freed) {
+            freed = true;
+            release(buffer);
         }
     }
 
     public void clean() {
-        final DirectBuffer directBuffer = (DirectBuffer) buffer;
-        directBuffer.cleaner().clean();
+        if (!view && !freed) {
+            freed = true;
+            clean(buffer, tag);
+        }
+    }
+
+    public String tag() {
+        return tag;
+    }
+
+    public BytesPool pool() {
+        return pool;
     }
 
     public ByteBuffer buffer() {
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class BytesPool {
+
+    public static final String DEFAULT_TAG = "BytesPool";
+
+    private final boolean direct;
+    private final String tag;
+    private final int minSize;
+    private final int maxSize;
+    private final int maxBuffersPerClass;
+    private final Queue<ByteBuffer>[] freeBuffers;
+    private final AtomicInteger[] freeCounts;
+
+    public static int sizeClass(int size) {
+        if (size <= 1) {
+            return 1;
+        }
+        final int sizeClass = Integer.highestOneBit(size - 1) << 1;
+        return sizeClass > 0 ? sizeClass : Integer.MAX_VALUE;
+    }
+
+    public BytesPool(boolean direct) {
+        this(direct, 64, 1 << 20, 256);
+    }
+
+    public BytesPool(boolean direct, int minSize, int maxSize, int maxBuffersPerClass) {
+        this(direct, minSize, maxSize, maxBuffersPerClass, DEFAULT_TAG);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BytesPool(boolean direct, int minSize, int maxSize, int maxBuffersPerClass, String tag) {
+        if (minSize <= 0 || minSize > maxSize || maxSize > 1 << 30) {
+            throw new IllegalArgumentException(minSize + ", " + maxSize);
+        }
+        this.direct = direct;
+        this.tag = tag;
+        this.minSize = sizeClass(minSize);
+        this.maxSize = sizeClass(maxSize);
+        this.maxBuffersPerClass = maxBuffersPerClass;
+        final int classCount = classIndex(this.maxSize) + 1;
+        this.freeBuffers = new Queue[classCount];
+        this.freeCounts = new AtomicInteger[classCount];
+        for (int index = 0; index < classCount; ++index) {
+            this.freeBuffers[index] = new ConcurrentLinkedQueue<>();
+            this.freeCounts[index] = new AtomicInteger();
+        }
+    }
+
+    private int classIndex(int sizeClass) {
+        return Integer.numberOfTrailingZeros(sizeClass) - Integer.numberOfTrailingZeros(minSize);
+    }
+
+    public Bytes allocate(int length) {
+        return allocate(length, length);
+    }
+
+    public Bytes allocate(int length, int maxSize) {
+        if (length > maxSize) {
+            throw new IllegalArgumentException(length + " > " + maxSize);
+        }
+        final ByteBuffer buffer = acquire(length);
+        buffer.limit(length);
+        return new Bytes(this, buffer, maxSize);
+    }
+
+    ByteBuffer acquire(int size) {
+        if (size > maxSize) {
+            return Bytes.allocate(size, direct, tag);
+        }
+        final int sizeClass = Math.max(sizeClass(size), minSize);
+        final int classIndex = classIndex(sizeClass);
+        final ByteBuffer buffer = freeBuffers[classIndex].poll();
+        if (null == buffer) {
+            return Bytes.allocate(sizeClass, direct, tag);
+        }
+        freeCounts[classIndex].decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    void release(ByteBuffer buffer) {
+        final int capacity = buffer.capacity();
+        if (buffer.isDirect() == direct && capacity >= minSize && capacity <= maxSize
+                && Integer.bitCount(capacity) == 1) {
+            final int classIndex = classIndex(capacity);
+            if (freeCounts[classIndex].incrementAndGet() <= maxBuffersPerClass) {
+                freeBuffers[classIndex].offer(buffer);
+                return;
+            }
+            freeCounts[classIndex].decrementAndGet();
+        }
+        Bytes.clean(buffer, tag);
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    public String tag() {
+        return tag;
+    }
+
+    public int minSize() {
+        return minSize;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class CaptureLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaptureLog.class);
+
+    public static final byte READ = 1;
+    public static final byte WRITE = 2;
+
+    static final int MAGIC = 0x4c4e4350;
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER_LENGTH = 8;
+    static final int RECORD_HEADER_LENGTH = 21;
+    static final String SUFFIX = ".cap";
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENTS = 16;
+
+    private final Path directory;
+    private final String prefix;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final long originNanos = System.nanoTime();
+    private final AtomicLong nextConnectionId = new AtomicLong();
+    private final ArrayDeque<Path> segments = new ArrayDeque<>();
+    private final ExecutorService roller = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "capture-log-roller");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int segmentIndex = 0;
+    private MappedByteBuffer segment;
+    private CompletableFuture<MappedByteBuffer> nextSegment;
+    private boolean closed = false;
+
+    public CaptureLog(Path directory, String prefix) throws IOException {
+        this(directory, prefix, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+    }
+
+    public CaptureLog(Path directory, String prefix, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize <= SEGMENT_HEADER_LENGTH + RECORD_HEADER_LENGTH || maxSegments <= 0) {
+            throw new IllegalArgumentException(segmentSize + ", " + maxSegments);
+        }
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        final List<Path> existing = segments(directory, prefix);
+        if (!existing.isEmpty()) {
+            throw new FileAlreadyExistsException(existing.get(0).toString(), null,
+                    "A capture with this prefix already exists");
+        }
+        this.segment = map(segmentIndex);
+        this.segments.add(file(segmentIndex));
+        this.nextSegment = prepare(segmentIndex + 1);
+    }
+
+    static List<Path> segments(Path directory, String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                final String name = file.getFileName().toString();
+                return name.startsWith(prefix + '-') && name.endsWith(SUFFIX);
+            }).sorted().collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private Path file(int index) {
+        return directory.resolve(String.format("%s-%010d%s", prefix, index, SUFFIX));
+    }
+
+    private MappedByteBuffer map(int index) throws IOException {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file(index), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        buffer.putInt(MAGIC).putInt(VERSION);
+        return buffer;
+    }
+
+    private CompletableFuture<MappedByteBuffer> prepare(int index) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return map(index);
+            } catch (IOException exc) {
+                throw new UncheckedIOException(exc);
+            }
+        }, roller);
+    }
+
+    private void roll() throws IOException {
+        final MappedByteBuffer previous = segment;
+        try {
+            segment = nextSegment.join();
+        } catch (CompletionException exc) {
+            if (exc.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) exc.getCause()).getCause();
+            }
+            throw exc;
+        }
+        final Path file = file(++segmentIndex);
+        roller.execute(() -> {
+            previous.force();
+            DirectBufferCleaner.clean(previous);
+            segments.add(file);
+            try {
+                while (segments.size() > maxSegments) {
+                    Files.deleteIfExists(segments.poll());
+                }
+            } catch (IOException exc) {
+                logger.error(exc.getMessage(), exc);
+            }
+        });
+        nextSegment = prepare(segmentIndex + 1);
+    }
+
+    public long nextConnectionId() {
+        return nextConnectionId.incrementAndGet();
+    }
+
+    public void append(long connectionId, byte direction, ByteBuffer data) {
+        append(connectionId, direction, data, data.position(), data.limit());
+    }
+
+    public synchronized void append(long connectionId, byte direction, ByteBuffer data, int from, int to) {
+        if (closed || from >= to) {
+            return;
+        }
+        final long timestamp = System.nanoTime() - originNanos;
+        final ByteBuffer source = data.duplicate();
+        try {
+            do {
+                if (segment.remaining() < RECORD_HEADER_LENGTH + Math.min(to - from, 1)) {
+                    roll();
+                }
+                final int length = Math.min(to - from, segment.remaining() - RECORD_HEADER_LENGTH);
+                segment.putLong(timestamp).putLong(connectionId).put(direction).putInt(length);
+                source.limit(from + length);
+                source.position(from);
+                segment.put(source);
+                from += length;
+            } while (from < to);
+        } catch (IOException exc) {
+            logger.error("Capture disabled: " + exc.getMessage(), exc);
+            closed = true;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            roller.shutdown();
+            try {
+                roller.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+            }
+            segment.force();
+            DirectBufferCleaner.clean(segment);
+            if (!nextSegment.isCompletedExceptionally()) {
+                DirectBufferCleaner.clean(nextSegment.join());
+            }
+            try {
+                Files.deleteIfExists(file(segmentIndex + 1));
+            } catch (IOException exc) {
+                logger.error(exc.getMessage(), exc);
+            }
+        }
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    public String prefix() {
+        return prefix;
+    }
+}
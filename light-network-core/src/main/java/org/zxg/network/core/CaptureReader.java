@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class CaptureReader implements Closeable {
+
+    private final List<Path> files;
+    private int fileIndex = -1;
+    private MappedByteBuffer segment;
+    private long timestampNanos;
+    private long connectionId;
+    private byte direction;
+    private int payloadPosition;
+    private int payloadLength;
+
+    public CaptureReader(Path directory, String prefix) throws IOException {
+        this.files = CaptureLog.segments(directory, prefix);
+    }
+
+    static MappedByteBuffer map(Path file) throws IOException {
+        final MappedByteBuffer segment;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (segment.remaining() < CaptureLog.SEGMENT_HEADER_LENGTH || segment.getInt() != CaptureLog.MAGIC) {
+            DirectBufferCleaner.clean(segment);
+            throw new IOException("Not a capture segment: " + file);
+        }
+        final int version = segment.getInt();
+        if (version != CaptureLog.VERSION) {
+            DirectBufferCleaner.clean(segment);
+            throw new IOException("Unsupported capture version " + version + ": " + file);
+        }
+        return segment;
+    }
+
+    private boolean openNext() throws IOException {
+        close();
+        if (fileIndex + 1 >= files.size()) {
+            return false;
+        }
+        segment = map(files.get(++fileIndex));
+        return true;
+    }
+
+    boolean skip() throws IOException {
+        while (true) {
+            if (segment != null && segment.remaining() >= CaptureLog.RECORD_HEADER_LENGTH) {
+                final int position = segment.position();
+                final long timestamp = segment.getLong();
+                final long id = segment.getLong();
+                final byte recordDirection = segment.get();
+                final int length = segment.getInt();
+                if ((CaptureLog.READ == recordDirection || CaptureLog.WRITE == recordDirection)
+                        && length >= 0 && length <= segment.remaining()) {
+                    timestampNanos = timestamp;
+                    connectionId = id;
+                    direction = recordDirection;
+                    payloadPosition = segment.position();
+                    payloadLength = length;
+                    segment.position(payloadPosition + length);
+                    return true;
+                }
+                segment.position(position);
+            }
+            if (!openNext()) {
+                return false;
+            }
+        }
+    }
+
+    public CaptureRecord next() throws IOException {
+        if (!skip()) {
+            return null;
+        }
+        final byte[] payload = new byte[payloadLength];
+        final ByteBuffer source = segment.duplicate();
+        source.position(payloadPosition);
+        source.get(payload);
+        return new CaptureRecord(timestampNanos, connectionId, direction, payload);
+    }
+
+    List<Path> files() {
+        return files;
+    }
+
+    long location() {
+        return (long) fileIndex << 32 | payloadPosition - CaptureLog.RECORD_HEADER_LENGTH;
+    }
+
+    long timestampNanos() {
+        return timestampNanos;
+    }
+
+    long connectionId() {
+        return connectionId;
+    }
+
+    @Override
+    public void close() {
+        if (segment != null) {
+            DirectBufferCleaner.clean(segment);
+            segment = null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class CaptureRecord {
+
+    private final long timestampNanos;
+    private final long connectionId;
+    private final byte direction;
+    private final byte[] payload;
+
+    public CaptureRecord(long timestampNanos, long connectionId, byte direction, byte[] payload) {
+        this.timestampNanos = timestampNanos;
+        this.connectionId = connectionId;
+        this.direction = direction;
+        this.payload = payload;
+    }
+
+    public long timestampNanos() {
+        return timestampNanos;
+    }
+
+    public long connectionId() {
+        return connectionId;
+    }
+
+    public byte direction() {
+        return direction;
+    }
+
+    public byte[] payload() {
+        return payload;
+    }
+}
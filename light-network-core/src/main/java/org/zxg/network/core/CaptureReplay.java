@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class CaptureReplay {
+
+    private final EventLoop loop;
+    private final SocketAddress remote;
+    private final double speed;
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final AtomicLong receivedBytes = new AtomicLong();
+    private final AtomicLong failedConnections = new AtomicLong();
+    private volatile long readTimeoutNanos = TimeUnit.SECONDS.toNanos(30);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: CaptureReplay <directory> <prefix> <host> <port> [speed]");
+            System.exit(1);
+        }
+        final double speed = args.length > 4 ? Double.parseDouble(args[4]) : 1.0;
+        try (EventLoop loop = new EventLoop()) {
+            final CaptureReplay replay = new CaptureReplay(loop,
+                    new InetSocketAddress(args[2], Integer.parseInt(args[3])), speed);
+            final long begin = System.nanoTime();
+            replay.replay(Paths.get(args[0]), args[1]).join();
+            System.out.printf("sent: %d bytes, received: %d bytes, failed connections: %d, elapsed: %.3f s%n",
+                    replay.sentBytes(), replay.receivedBytes(), replay.failedConnections(),
+                    (System.nanoTime() - begin) / 1e9);
+        }
+    }
+
+    public CaptureReplay(EventLoop loop, SocketAddress remote, double speed) {
+        if (!(speed > 0.0)) {
+            throw new IllegalArgumentException(String.valueOf(speed));
+        }
+        this.loop = loop;
+        this.remote = remote;
+        this.speed = speed;
+    }
+
+    public CompletableFuture<Void> replay(Path directory, String prefix) throws IOException {
+        final Map<Long, Locations> connections = new LinkedHashMap<>();
+        final List<Path> files;
+        long origin = Long.MAX_VALUE;
+        try (CaptureReader reader = new CaptureReader(directory, prefix)) {
+            while (reader.skip()) {
+                origin = Math.min(origin, reader.timestampNanos());
+                connections.computeIfAbsent(reader.connectionId(), id -> new Locations()).add(reader.location());
+            }
+            files = reader.files();
+        }
+        final MappedByteBuffer[] segments = new MappedByteBuffer[files.size()];
+        try {
+            for (int index = 0; index < segments.length; ++index) {
+                segments[index] = CaptureReader.map(files.get(index));
+            }
+        } catch (IOException exc) {
+            unmap(segments);
+            throw exc;
+        }
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "capture-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long startNanos = System.nanoTime();
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(connections.size());
+        for (Locations locations : connections.values()) {
+            final Session session = new Session(segments, locations, origin, startNanos, scheduler);
+            futures.add(session.start().handle((result, exc) -> {
+                if (exc != null) {
+                    failedConnections.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .whenComplete((result, exc) -> {
+                    scheduler.shutdown();
+                    unmap(segments);
+                });
+    }
+
+    private static void unmap(MappedByteBuffer[] segments) {
+        for (MappedByteBuffer segment : segments) {
+            if (segment != null) {
+                DirectBufferCleaner.clean(segment);
+            }
+        }
+    }
+
+    public long readTimeout(TimeUnit unit) {
+        return unit.convert(readTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void readTimeout(long timeout, TimeUnit unit) {
+        this.readTimeoutNanos = unit.toNanos(timeout);
+    }
+
+    public long sentBytes() {
+        return sentBytes.get();
+    }
+
+    public long receivedBytes() {
+        return receivedBytes.get();
+    }
+
+    public long failedConnections() {
+        return failedConnections.get();
+    }
+
+    private static class Locations {
+
+        private long[] values = new long[16];
+        private int size = 0;
+
+        void add(long location) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = location;
+        }
+    }
+
+    private class Session {
+
+        private final MappedByteBuffer[] segments;
+        private final Locations locations;
+        private final long origin;
+        private final long startNanos;
+        private final ScheduledExecutorService scheduler;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private Client client;
+        private int nextRecord = 0;
+
+        Session(MappedByteBuffer[] segments, Locations locations, long origin, long startNanos,
+                ScheduledExecutorService scheduler) {
+            this.segments = segments;
+            this.locations = locations;
+            this.origin = origin;
+            this.startNanos = startNanos;
+            this.scheduler = scheduler;
+        }
+
+        private ByteBuffer record(int index) {
+            final long location = locations.values[index];
+            final ByteBuffer record = segments[(int) (location >>> 32)].duplicate();
+            record.position((int) location);
+            return record;
+        }
+
+        CompletableFuture<Void> start() {
+            try {
+                client = new Client(loop);
+            } catch (IOException exc) {
+                future.completeExceptionally(exc);
+                return future;
+            }
+            at(record(0).getLong(), () -> client.connect(remote).whenComplete((result, exc) -> {
+                if (exc != null) {
+                    finish(exc);
+                } else {
+                    next();
+                }
+            }));
+            return future;
+        }
+
+        private void at(long timestampNanos, Runnable action) {
+            final long delay = startNanos + (long) ((timestampNanos - origin) / speed) - System.nanoTime();
+            if (delay <= 0L) {
+                action.run();
+            } else {
+                scheduler.schedule(action, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void next() {
+            if (nextRecord == locations.size) {
+                finish(null);
+                return;
+            }
+            final ByteBuffer record = record(nextRecord++);
+            final long timestamp = record.getLong();
+            record.getLong();
+            final byte direction = record.get();
+            final int length = record.getInt();
+            record.limit(record.position() + length);
+            if (CaptureLog.READ == direction) {
+                at(timestamp, () -> {
+                    final Bytes bytes = new Bytes(record, true);
+                    client.write(bytes).whenComplete((result, exc) -> {
+                        bytes.free();
+                        if (exc != null) {
+                            finish(exc);
+                        } else {
+                            sentBytes.addAndGet(length);
+                            next();
+                        }
+                    });
+                });
+            } else {
+                final Bytes bytes = new Bytes(length, true);
+                client.readExactly(bytes, length, readTimeoutNanos, TimeUnit.NANOSECONDS)
+                        .whenComplete((result, exc) -> {
+                            bytes.free();
+                            if (exc != null) {
+                                finish(exc);
+                            } else {
+                                receivedBytes.addAndGet(length);
+                                next();
+                            }
+                        });
+            }
+        }
+
+        private void finish(Throwable exc) {
+            try {
+                client.close();
+            } catch (IOException closeExc) {
+                if (null == exc) {
+                    exc = closeExc;
+                }
+            }
+            if (exc != null) {
+                future.completeExceptionally(exc);
+            } else {
+                future.complete(null);
+            }
+        }
+    }
+}
@@ -28,7 +28,7 @@ import java.util.concurrent.CompletableFuture;
 public class Client extends Connection {
 
     public Client(EventLoop loop) throws IOException {
-        super(AsynchronousSocketChannel.open(loop.channelGroup()));
+        super(AsynchronousSocketChannel.open(loop.channelGroup()), loop);
     }
 
     public void bind(SocketAddress local) throws IOException {
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class CompositeBytes {
+
+    private final List<Bytes> components;
+    private int[] ends;
+
+    public CompositeBytes() {
+        this.components = new ArrayList<>();
+    }
+
+    public CompositeBytes(Bytes... components) {
+        this(Arrays.asList(components));
+    }
+
+    public CompositeBytes(List<Bytes> components) {
+        this.components = new ArrayList<>(components);
+    }
+
+    public void add(Bytes component) {
+        components.add(component);
+        ends = null;
+    }
+
+    public Bytes component(int index) {
+        return components.get(index);
+    }
+
+    public int componentCount() {
+        return components.size();
+    }
+
+    public List<Bytes> components() {
+        return Collections.unmodifiableList(components);
+    }
+
+    private int[] ends() {
+        int[] ends = this.ends;
+        if (ends != null) {
+            int begin = 0;
+            for (int index = 0; index < ends.length; ++index) {
+                if (components.get(index).length() != ends[index] - begin) {
+                    ends = null;
+                    break;
+                }
+                begin = ends[index];
+            }
+        }
+        if (null == ends) {
+            ends = new int[components.size()];
+            int end = 0;
+            for (int index = 0; index < ends.length; ++index) {
+                end += components.get(index).length();
+                ends[index] = end;
+            }
+            this.ends = ends;
+        }
+        return ends;
+    }
+
+    private static int componentIndex(int[] ends, int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        int low = 0;
+        int high = ends.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (ends[middle] <= index) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == ends.length) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return low;
+    }
+
+    private static int componentBegin(int[] ends, int componentIndex) {
+        return 0 == componentIndex ? 0 : ends[componentIndex - 1];
+    }
+
+    public byte get(int index) {
+        final int[] ends = ends();
+        final int componentIndex = componentIndex(ends, index);
+        return components.get(componentIndex).get(index - componentBegin(ends, componentIndex));
+    }
+
+    public void set(int index, byte value) {
+        final int[] ends = ends();
+        final int componentIndex = componentIndex(ends, index);
+        components.get(componentIndex).set(index - componentBegin(ends, componentIndex), value);
+    }
+
+    public void get(int begin, byte[] elements, int offset, int length) {
+        if (0 == length) {
+            return;
+        }
+        final int[] ends = ends();
+        int componentIndex = componentIndex(ends, begin);
+        int componentOffset = begin - componentBegin(ends, componentIndex);
+        while (length > 0) {
+            final Bytes component = components.get(componentIndex);
+            final int n = Math.min(component.length() - componentOffset, length);
+            component.get(componentOffset, elements, offset, n);
+            offset += n;
+            length -= n;
+            componentOffset = 0;
+            ++componentIndex;
+        }
+    }
+
+    public byte[] get(int begin, int end) {
+        final byte[] elements = new byte[end - begin];
+        get(begin, elements, 0, elements.length);
+        return elements;
+    }
+
+    public byte[] get() {
+        return get(0, length());
+    }
+
+    public void set(int begin, byte[] elements, int offset, int length) {
+        if (0 == length) {
+            return;
+        }
+        final int[] ends = ends();
+        int componentIndex = componentIndex(ends, begin);
+        int componentOffset = begin - componentBegin(ends, componentIndex);
+        while (length > 0) {
+            final Bytes component = components.get(componentIndex);
+            final int n = Math.min(component.length() - componentOffset, length);
+            component.set(componentOffset, elements, offset, n);
+            offset += n;
+            length -= n;
+            componentOffset = 0;
+            ++componentIndex;
+        }
+    }
+
+    public void set(int begin, byte[] elements, int offset) {
+        set(begin, elements, offset, elements.length - offset);
+    }
+
+    public void set(byte[] elements, int offset, int length) {
+        set(0, elements, offset, length);
+    }
+
+    public void set(byte[] elements, int offset) {
+        set(elements, offset, elements.length - offset);
+    }
+
+    public void set(int begin, byte[] elements) {
+        set(begin, elements, 0, elements.length);
+    }
+
+    public void set(byte[] elements) {
+        set(0, elements);
+    }
+
+    public int length() {
+        final int[] ends = ends();
+        return 0 == ends.length ? 0 : ends[ends.length - 1];
+    }
+
+    public int size() {
+        int size = 0;
+        for (Bytes component : components) {
+            size += component.size();
+        }
+        return size;
+    }
+
+    public Bytes flatten(boolean direct) {
+        final Bytes bytes = new Bytes(length(), direct);
+        try {
+            int index = 0;
+            for (Bytes component : components) {
+                final int length = component.length();
+                Bytes.copy(component, 0, bytes, index, length);
+                index += length;
+            }
+        } catch (Exception exc) {
+            bytes.free();
+            throw exc;
+        }
+        return bytes;
+    }
+
+    public void free() {
+        for (Bytes component : components) {
+            component.free();
+        }
+    }
+
+    public ByteBuffer[] buffers() {
+        final ByteBuffer[] buffers = new ByteBuffer[components.size()];
+        for (int index = 0; index < buffers.length; ++index) {
+            buffers[index] = components.get(index).buffer();
+        }
+        return buffers;
+    }
+
+    @Override
+    public String toString() {
+        return components.toString();
+    }
+}
@@ -22,6 +22,8 @@ import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.CompletionHandler;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -29,10 +31,48 @@ import java.util.concurrent.TimeUnit;
  */
 public class Connection implements Closeable {
 
+    private static final Executor inlineExecutor = Runnable::run;
+
     private final AsynchronousSocketChannel channel;
+    private final EventLoop loop;
+    private final CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+    private volatile Executor executor = inlineExecutor;
+    private volatile CaptureLog captureLog;
+    private long captureId;
 
     public Connection(AsynchronousSocketChannel channel) {
+        this(channel, null);
+    }
+
+    public Connection(AsynchronousSocketChannel channel, EventLoop loop) {
         this.channel = channel;
+        this.loop = loop;
+    }
+
+    private <T> void complete(CompletableFuture<T> future, T value) {
+        final Executor executor = this.executor;
+        if (inlineExecutor == executor) {
+            future.complete(value);
+            return;
+        }
+        try {
+            executor.execute(() -> future.complete(value));
+        } catch (RejectedExecutionException exc) {
+            future.completeExceptionally(exc);
+        }
+    }
+
+    private <T> void completeExceptionally(CompletableFuture<T> future, Throwable exception) {
+        final Executor executor = this.executor;
+        if (inlineExecutor == executor) {
+            future.completeExceptionally(exception);
+            return;
+        }
+        try {
+            executor.execute(() -> future.completeExceptionally(exception));
+        } catch (RejectedExecutionException exc) {
+            future.completeExceptionally(exception);
+        }
     }
 
     public CompletableFuture<Bytes> read(Bytes bytes) {
@@ -50,20 +90,27 @@ public class Connection implements Closeable {
     public CompletableFuture<Bytes> readExactly(Bytes bytes, int n, long timeout,
                                                 TimeUnit unit) {
         final CompletableFuture<Bytes> future = new CompletableFuture<>();
-        final ByteBuffer buffer = bytes.buffer();
-        buffer.clear();
+        if (n >= 0) {
+            try {
+                bytes.expand(n);
+            } catch (BytesOverflowException exc) {
+                completeExceptionally(future, exc);
+                return future;
+            }
+        }
+        final ByteBuffer buffer = bytes.clear();
         if (n < 0) {
             channel.read(buffer, timeout, unit, null, new CompletionHandler<Integer, Object>() {
                 @Override
                 public void completed(Integer result, Object attachment) {
                     buffer.flip();
-                    future.complete(bytes);
+                    complete(future, bytes);
                 }
 
                 @Override
                 public void failed(Throwable exc, Object attachment) {
                     buffer.flip();
-                    future.completeExceptionally(exc);
+                    completeExceptionally(future, exc);
                 }
             });
         } else {
@@ -76,22 +123,119 @@ public class Connection implements Closeable {
                             channel.read(buffer, timeout, unit, null, this);
                         } else {
                             buffer.flip();
-                            future.completeExceptionally(new IncompleteReadException());
+                            completeExceptionally(future, new IncompleteReadException());
                         }
                     } else {
                         buffer.flip();
-                        future.complete(bytes);
+                        complete(future, bytes);
                     }
                 }
 
                 @Override
                 public void failed(Throwable exc, Object attachment) {
                     buffer.flip();
-                    future.completeExceptionally(exc);
+                    completeExceptionally(future, exc);
                 }
             });
         }
-        return future;
+        return captured(future, 0);
+    }
+
+    public CompletableFuture<CompositeBytes> read(CompositeBytes bytes) {
+        return read(bytes, 0L, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<CompositeBytes> read(CompositeBytes bytes, long timeout, TimeUnit unit) {
+        return readExactly(bytes, -1, timeout, unit);
+    }
+
+    public CompletableFuture<CompositeBytes> readExactly(CompositeBytes bytes, int n) {
+        return readExactly(bytes, n, 0L, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<CompositeBytes> readExactly(CompositeBytes bytes, int n, long timeout,
+                                                         TimeUnit unit) {
+        final CompletableFuture<CompositeBytes> future = new CompletableFuture<>();
+        final ByteBuffer[] buffers = bytes.buffers();
+        int remaining = n;
+        for (Bytes component : bytes.components()) {
+            final ByteBuffer buffer = component.clear();
+            if (n >= 0) {
+                final int limit = Math.min(buffer.limit(), remaining);
+                buffer.limit(limit);
+                remaining -= limit;
+            }
+        }
+        if (remaining > 0) {
+            flip(buffers);
+            future.completeExceptionally(new BytesOverflowException(n, n - remaining));
+            return future;
+        }
+        channel.read(buffers, 0, buffers.length, timeout, unit, null, new CompletionHandler<Long, Object>() {
+            @Override
+            public void completed(Long result, Object attachment) {
+                final int offset = firstRemaining(buffers);
+                if (n < 0 || offset == buffers.length) {
+                    flip(buffers);
+                    complete(future, bytes);
+                } else if (-1 != result) {
+                    channel.read(buffers, offset, buffers.length - offset, timeout, unit, null, this);
+                } else {
+                    flip(buffers);
+                    completeExceptionally(future, new IncompleteReadException());
+                }
+            }
+
+            @Override
+            public void failed(Throwable exc, Object attachment) {
+                flip(buffers);
+                completeExceptionally(future, exc);
+            }
+        });
+        return captured(future);
+    }
+
+    public CompletableFuture<Bytes> readMore(Bytes bytes) {
+        return readMore(bytes, 0L, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<Bytes> readMore(Bytes bytes, long timeout, TimeUnit unit) {
+        final CompletableFuture<Bytes> future = new CompletableFuture<>();
+        final int previousLength = bytes.length();
+        ByteBuffer buffer = bytes.buffer();
+        if (buffer.position() > 0 && buffer.limit() >= Math.min(buffer.capacity(), bytes.maxSize())) {
+            buffer.compact();
+            buffer.flip();
+        }
+        if (buffer.limit() >= Math.min(buffer.capacity(), bytes.maxSize())) {
+            try {
+                bytes.expand(buffer.limit() + 1);
+            } catch (BytesOverflowException exc) {
+                completeExceptionally(future, exc);
+                return future;
+            }
+            buffer = bytes.buffer();
+        }
+        final ByteBuffer readBuffer = buffer;
+        final int position = readBuffer.position();
+        readBuffer.position(readBuffer.limit());
+        readBuffer.limit(Math.min(readBuffer.capacity(), bytes.maxSize()));
+        channel.read(readBuffer, timeout, unit, null, new CompletionHandler<Integer, Object>() {
+            @Override
+            public void completed(Integer result, Object attachment) {
+                readBuffer.limit(readBuffer.position());
+                readBuffer.position(position);
+                complete(future, bytes);
+            }
+
+            @Override
+            public void failed(Throwable exc, Object attachment) {
+                readBuffer.limit(readBuffer.position());
+                readBuffer.position(position);
+                completeExceptionally(future, exc);
+            }
+        });
+        return captured(future, previousLength);
     }
 
     public CompletableFuture<Bytes> readLine(Bytes bytes) {
@@ -107,9 +251,10 @@ public class Connection implements Closeable {
         channel.read(buffer, timeout, unit, null, new CompletionHandler<Integer, Object>() {
             @Override
             public void completed(Integer result, Object attachment) {
+                final ByteBuffer buffer = bytes.buffer();
                 if (-1 == result) {
                     buffer.flip();
-                    future.complete(bytes);
+                    complete(future, bytes);
                     return;
                 }
                 if (buffer.hasRemaining()) {
@@ -117,21 +262,20 @@ public class Connection implements Closeable {
                 } else {
                     if (10 == buffer.get(buffer.position() - 1)) {
                         buffer.flip();
-                        future.complete(bytes);
+                        complete(future, bytes);
                     } else {
-                        buffer.limit(buffer.position() + 1);
-                        channel.read(buffer, timeout, unit, null, this);
+                        readNextByte(bytes, timeout, unit, future, null, this);
                     }
                 }
             }
 
             @Override
             public void failed(Throwable exc, Object attachment) {
-                buffer.flip();
-                future.completeExceptionally(exc);
+                bytes.buffer().flip();
+                completeExceptionally(future, exc);
             }
         });
-        return future;
+        return captured(future, 0);
     }
 
     public CompletableFuture<Bytes> readUntil(Bytes bytes, byte separator) {
@@ -147,24 +291,24 @@ public class Connection implements Closeable {
         channel.read(buffer, timeout, unit, null, new CompletionHandler<Integer, Object>() {
             @Override
             public void completed(Integer result, Object attachment) {
+                final ByteBuffer buffer = bytes.buffer();
                 if (buffer.hasRemaining()) {
                     if (-1 != result) {
                         channel.read(buffer, timeout, unit, null, this);
                     } else {
                         buffer.flip();
-                        future.completeExceptionally(new IncompleteReadException());
+                        completeExceptionally(future, new IncompleteReadException());
                     }
                 } else {
                     if (buffer.get(buffer.position() - 1) == separator) {
                         buffer.flip();
-                        future.complete(bytes);
+                        complete(future, bytes);
                     } else {
                         if (-1 != result) {
-                            buffer.limit(buffer.position() + 1);
-                            channel.read(buffer, timeout, unit, null, this);
+                            readNextByte(bytes, timeout, unit, future, null, this);
                         } else {
                             buffer.flip();
-                            future.completeExceptionally(new IncompleteReadException());
+                            completeExceptionally(future, new IncompleteReadException());
                         }
                     }
                 }
@@ -172,11 +316,11 @@ public class Connection implements Closeable {
 
             @Override
             public void failed(Throwable exc, Object attachment) {
-                buffer.flip();
-                future.completeExceptionally(exc);
+                bytes.buffer().flip();
+                completeExceptionally(future, exc);
             }
         });
-        return future;
+        return captured(future, 0);
     }
 
     public CompletableFuture<Bytes> readUntil(Bytes bytes, byte[] separator) {
@@ -189,6 +333,12 @@ public class Connection implements Closeable {
             return read(bytes, timeout, unit);
         }
         final CompletableFuture<Bytes> future = new CompletableFuture<>();
+        try {
+            bytes.expand(separator.length);
+        } catch (BytesOverflowException exc) {
+            completeExceptionally(future, exc);
+            return future;
+        }
         final ByteBuffer buffer = bytes.buffer();
         buffer.clear();
         buffer.limit(separator.length);
@@ -196,12 +346,13 @@ public class Connection implements Closeable {
         channel.read(buffer, timeout, unit, null, new CompletionHandler<Integer, RingArray>() {
             @Override
             public void completed(Integer result, RingArray lastBytes) {
+                final ByteBuffer buffer = bytes.buffer();
                 if (buffer.hasRemaining()) {
                     if (-1 != result) {
                         channel.read(buffer, timeout, unit, lastBytes, this);
                     } else {
                         buffer.flip();
-                        future.completeExceptionally(new IncompleteReadException());
+                        completeExceptionally(future, new IncompleteReadException());
                     }
                 } else {
                     if (null == lastBytes) {
@@ -214,14 +365,13 @@ public class Connection implements Closeable {
                     }
                     if (lastBytes.isEqual(separator)) {
                         buffer.flip();
-                        future.complete(bytes);
+                        complete(future, bytes);
                     } else {
                         if (-1 != result) {
-                            buffer.limit(buffer.position() + 1);
-                            channel.read(buffer, timeout, unit, lastBytes, this);
+                            readNextByte(bytes, timeout, unit, future, lastBytes, this);
                         } else {
                             buffer.flip();
-                            future.completeExceptionally(new IncompleteReadException());
+                            completeExceptionally(future, new IncompleteReadException());
                         }
                     }
                 }
@@ -229,11 +379,27 @@ public class Connection implements Closeable {
 
             @Override
             public void failed(Throwable exc, RingArray attachment) {
-                buffer.flip();
-                future.completeExceptionally(exc);
+                bytes.buffer().flip();
+                completeExceptionally(future, exc);
             }
         });
-        return future;
+        return captured(future, 0);
+    }
+
+    private <A> void readNextByte(Bytes bytes, long timeout, TimeUnit unit,
+                                  CompletableFuture<Bytes> future, A attachment,
+                                  CompletionHandler<Integer, A> handler) {
+        final int position = bytes.buffer().position();
+        try {
+            bytes.expand(position + 1);
+        } catch (BytesOverflowException exc) {
+            bytes.buffer().flip();
+            completeExceptionally(future, exc);
+            return;
+        }
+        final ByteBuffer buffer = bytes.buffer();
+        buffer.limit(position + 1);
+        channel.read(buffer, timeout, unit, attachment, handler);
     }
 
     public CompletableFuture<Bytes> write(Bytes bytes) {
@@ -244,21 +410,80 @@ public class Connection implements Closeable {
                                           TimeUnit unit) {
         final CompletableFuture<Bytes> future = new CompletableFuture<>();
         final ByteBuffer buffer = bytes.buffer();
-        channel.write(buffer, timeout, unit, null, new CompletionHandler<Integer, Object>() {
-            @Override
-            public void completed(Integer result, Object attachment) {
-                if (buffer.hasRemaining()) {
-                    channel.write(buffer, timeout, unit, null, this);
-                } else {
-                    future.complete(bytes);
+        capture(CaptureLog.WRITE, buffer, buffer.position());
+        final int pendingBytes = buffer.remaining();
+        writeStarted(pendingBytes);
+        try {
+            channel.write(buffer, timeout, unit, null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(Integer result, Void attachment) {
+                    writeCompleted(result);
+                    if (buffer.hasRemaining()) {
+                        try {
+                            channel.write(buffer, timeout, unit, null, this);
+                        } catch (RuntimeException exc) {
+                            failed(exc, attachment);
+                        }
+                    } else {
+                        complete(future, bytes);
+                    }
                 }
-            }
 
-            @Override
-            public void failed(Throwable exc, Object attachment) {
-                future.completeExceptionally(exc);
-            }
-        });
+                @Override
+                public void failed(Throwable exc, Void attachment) {
+                    writeCompleted(buffer.remaining());
+                    completeExceptionally(future, exc);
+                }
+            });
+        } catch (RuntimeException exc) {
+            writeCompleted(pendingBytes);
+            throw exc;
+        }
+        return future;
+    }
+
+    public CompletableFuture<CompositeBytes> write(CompositeBytes bytes) {
+        return write(bytes, 0L, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<CompositeBytes> write(CompositeBytes bytes, long timeout,
+                                                   TimeUnit unit) {
+        final CompletableFuture<CompositeBytes> future = new CompletableFuture<>();
+        final ByteBuffer[] buffers = bytes.buffers();
+        for (ByteBuffer buffer : buffers) {
+            capture(CaptureLog.WRITE, buffer, buffer.position());
+        }
+        final long pendingBytes = remaining(buffers);
+        writeStarted(pendingBytes);
+        try {
+            channel.write(buffers, 0, buffers.length, timeout, unit, null,
+                    new CompletionHandler<Long, Void>() {
+                        @Override
+                        public void completed(Long result, Void attachment) {
+                            writeCompleted(result);
+                            final int offset = firstRemaining(buffers);
+                            if (offset < buffers.length) {
+                                try {
+                                    channel.write(buffers, offset, buffers.length - offset, timeout, unit,
+                                            null, this);
+                                } catch (RuntimeException exc) {
+                                    failed(exc, attachment);
+                                }
+                            } else {
+                                complete(future, bytes);
+                            }
+                        }
+
+                        @Override
+                        public void failed(Throwable exc, Void attachment) {
+                            writeCompleted(remaining(buffers));
+                            completeExceptionally(future, exc);
+                        }
+                    });
+        } catch (RuntimeException exc) {
+            writeCompleted(pendingBytes);
+            throw exc;
+        }
         return future;
     }
 
@@ -287,14 +512,138 @@ public class Connection implements Closeable {
         return future;
     }
 
+    private void capture(byte direction, ByteBuffer buffer, int from) {
+        final CaptureLog captureLog = this.captureLog;
+        if (captureLog != null) {
+            captureLog.append(captureId, direction, buffer, from, buffer.limit());
+        }
+    }
+
+    private CompletableFuture<Bytes> captured(CompletableFuture<Bytes> future, int skip) {
+        if (null == captureLog) {
+            return future;
+        }
+        final CompletableFuture<Bytes> captured = new CompletableFuture<>();
+        future.whenComplete((bytes, exc) -> {
+            if (exc != null) {
+                captured.completeExceptionally(exc);
+                return;
+            }
+            final ByteBuffer buffer = bytes.buffer();
+            capture(CaptureLog.READ, buffer, buffer.position() + skip);
+            captured.complete(bytes);
+        });
+        return captured;
+    }
+
+    private CompletableFuture<CompositeBytes> captured(CompletableFuture<CompositeBytes> future) {
+        if (null == captureLog) {
+            return future;
+        }
+        final CompletableFuture<CompositeBytes> captured = new CompletableFuture<>();
+        future.whenComplete((bytes, exc) -> {
+            if (exc != null) {
+                captured.completeExceptionally(exc);
+                return;
+            }
+            for (Bytes component : bytes.components()) {
+                final ByteBuffer buffer = component.buffer();
+                capture(CaptureLog.READ, buffer, buffer.position());
+            }
+            captured.complete(bytes);
+        });
+        return captured;
+    }
+
+    private static int firstRemaining(ByteBuffer[] buffers) {
+        int index = 0;
+        while (index < buffers.length && !buffers[index].hasRemaining()) {
+            ++index;
+        }
+        return index;
+    }
+
+    private static long remaining(ByteBuffer[] buffers) {
+        long remaining = 0L;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        return remaining;
+    }
+
+    private static void flip(ByteBuffer[] buffers) {
+        for (ByteBuffer buffer : buffers) {
+            buffer.flip();
+        }
+    }
+
+    public Relay pipe(Connection other) {
+        final Relay relay = new Relay(this, other);
+        relay.start();
+        return relay;
+    }
+
+    public void shutdownOutput() throws IOException {
+        if (channel.isOpen()) {
+            channel.shutdownOutput();
+        }
+    }
+
+    private void writeStarted(long bytes) {
+        if (loop != null) {
+            loop.addPendingWriteBytes(bytes);
+        }
+    }
+
+    private void writeCompleted(long bytes) {
+        if (loop != null) {
+            loop.addPendingWriteBytes(-bytes);
+        }
+    }
+
     @Override
     public void close() throws IOException {
-        if (channel.isOpen()) {
-            channel.close();
+        try {
+            if (channel.isOpen()) {
+                channel.close();
+            }
+        } finally {
+            closeFuture.complete(null);
         }
     }
 
+    public CompletableFuture<Void> closeFuture() {
+        return closeFuture;
+    }
+
+    public EventLoop loop() {
+        return loop;
+    }
+
+    public CaptureLog captureLog() {
+        return captureLog;
+    }
+
+    public void captureLog(CaptureLog captureLog) {
+        if (captureLog != null) {
+            this.captureId = captureLog.nextConnectionId();
+        }
+        this.captureLog = captureLog;
+    }
+
+    public long captureId() {
+        return captureId;
+    }
+
     public AsynchronousSocketChannel channel() {
         return channel;
     }
+
+    public Executor executor() {
+        return executor;
+    }
+
+    public void executor(Executor executor) {
+        this.executor = executor != null ? executor : inlineExecutor;
+    }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class DirectBufferCleaner {
+
+    private interface Cleaner {
+        void clean(ByteBuffer buffer) throws Exception;
+    }
+
+    private static final Cleaner cleaner = createCleaner();
+
+    private DirectBufferCleaner() {
+    }
+
+    private static Cleaner createCleaner() {
+        try {
+            // JDK 9+: sun.misc.Unsafe lives in the jdk.unsupported module, which is open by default.
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+            return buffer -> invokeCleaner.invoke(unsafe, buffer);
+        } catch (NoSuchMethodException exc) {
+            return createLegacyCleaner();
+        } catch (Exception exc) {
+            return null;
+        }
+    }
+
+    private static Cleaner createLegacyCleaner() {
+        try {
+            final Method cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            final Method cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                final Object bufferCleaner = cleanerMethod.invoke(buffer);
+                if (bufferCleaner != null) {
+                    cleanMethod.invoke(bufferCleaner);
+                }
+            };
+        } catch (Exception exc) {
+            return null;
+        }
+    }
+
+    static boolean isAvailable() {
+        return cleaner != null;
+    }
+
+    /**
+     * @return whether the memory was released now rather than left to the garbage collector
+     */
+    static boolean clean(ByteBuffer buffer) {
+        if (null == cleaner || !buffer.isDirect()) {
+            return false;
+        }
+        try {
+            cleaner.clean(buffer);
+            return true;
+        } catch (Exception exc) {
+            return false;
+        }
+    }
+}
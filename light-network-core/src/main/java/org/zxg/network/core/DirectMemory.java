@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class DirectMemory implements DirectMemoryMXBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectMemory.class);
+
+    public static final String OBJECT_NAME = "org.zxg.network.core:type=DirectMemory";
+
+    private static final DirectMemory global = new DirectMemory(
+            Long.getLong("org.zxg.network.directMemory.softLimit", Long.MAX_VALUE),
+            Long.getLong("org.zxg.network.directMemory.hardLimit", Long.MAX_VALUE),
+            !Boolean.getBoolean("org.zxg.network.directMemory.noHeapFallback"),
+            Boolean.getBoolean("org.zxg.network.directMemory.trackSites"));
+
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong peakBytes = new AtomicLong();
+    private final LongAdder allocationCount = new LongAdder();
+    private final LongAdder heapFallbackCount = new LongAdder();
+    private final LongAdder softLimitExceededCount = new LongAdder();
+    private final AtomicBoolean overSoftLimit = new AtomicBoolean();
+    private final Map<String, LongAdder> usageByTag = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> usageBySite = new ConcurrentHashMap<>();
+    private final Map<Integer, List<BufferReference>> references = new HashMap<>();
+    private final ReferenceQueue<ByteBuffer> leakedBuffers = new ReferenceQueue<>();
+    private volatile long softLimit;
+    private volatile long hardLimit;
+    private volatile boolean heapFallback;
+    private volatile boolean trackSites;
+
+    public static DirectMemory global() {
+        return global;
+    }
+
+    public DirectMemory(long softLimit, long hardLimit, boolean heapFallback, boolean trackSites) {
+        this.softLimit = softLimit;
+        this.hardLimit = hardLimit;
+        this.heapFallback = heapFallback;
+        this.trackSites = trackSites;
+    }
+
+    public ByteBuffer allocate(int capacity, String tag) {
+        expungeLeaks();
+        final long used = usedBytes.addAndGet(capacity);
+        if (used > hardLimit) {
+            usedBytes.addAndGet(-capacity);
+            return fallback(capacity, tag, null);
+        }
+        final ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.allocateDirect(capacity);
+        } catch (OutOfMemoryError error) {
+            usedBytes.addAndGet(-capacity);
+            return fallback(capacity, tag, error);
+        }
+        allocationCount.increment();
+        updatePeak(used);
+        if (used > softLimit && overSoftLimit.compareAndSet(false, true)) {
+            softLimitExceededCount.increment();
+            logger.warn("Direct memory usage {} exceeds the soft limit {}, usage by tag: {}.",
+                    used, softLimit, getUsageByTag());
+        }
+        usageByTag.computeIfAbsent(tag, key -> new LongAdder()).add(capacity);
+        final String site = trackSites ? allocationSite() : null;
+        final BufferReference reference = new BufferReference(buffer, tag, site, leakedBuffers);
+        synchronized (references) {
+            references.computeIfAbsent(reference.hash, key -> new ArrayList<>(1)).add(reference);
+        }
+        if (site != null) {
+            usageBySite.computeIfAbsent(site, key -> new LongAdder()).add(capacity);
+        }
+        return buffer;
+    }
+
+    private BufferReference removeReference(ByteBuffer buffer) {
+        final int hash = System.identityHashCode(buffer);
+        synchronized (references) {
+            final List<BufferReference> bucket = references.get(hash);
+            if (null == bucket) {
+                return null;
+            }
+            for (Iterator<BufferReference> iterator = bucket.iterator(); iterator.hasNext(); ) {
+                final BufferReference reference = iterator.next();
+                if (reference.get() == buffer) {
+                    iterator.remove();
+                    if (bucket.isEmpty()) {
+                        references.remove(hash);
+                    }
+                    return reference;
+                }
+            }
+            return null;
+        }
+    }
+
+    private void expungeLeaks() {
+        Reference<? extends ByteBuffer> polled;
+        while ((polled = leakedBuffers.poll()) != null) {
+            final BufferReference reference = (BufferReference) polled;
+            synchronized (references) {
+                final List<BufferReference> bucket = references.get(reference.hash);
+                if (null == bucket || !bucket.remove(reference)) {
+                    continue;
+                }
+                if (bucket.isEmpty()) {
+                    references.remove(reference.hash);
+                }
+            }
+            release(reference.capacity, reference.tag);
+            if (reference.site != null) {
+                logger.warn("Direct buffer of {} bytes with tag {} allocated at {} was not freed.",
+                        reference.capacity, reference.tag, reference.site);
+                usageBySite.get(reference.site).add(-reference.capacity);
+            }
+        }
+    }
+
+    private void release(int capacity, String tag) {
+        final long used = usedBytes.addAndGet(-capacity);
+        if (used <= softLimit) {
+            overSoftLimit.set(false);
+        }
+        final LongAdder tagUsage = usageByTag.get(tag);
+        if (tagUsage != null) {
+            tagUsage.add(-capacity);
+        }
+    }
+
+    private ByteBuffer fallback(int capacity, String tag, OutOfMemoryError error) {
+        if (!heapFallback) {
+            final OutOfMemoryError budgetError = new OutOfMemoryError("Direct memory budget exceeded by "
+                    + tag + ": used " + usedBytes.get() + ", requested " + capacity + ", hard limit "
+                    + hardLimit + ".");
+            if (error != null) {
+                budgetError.initCause(error);
+            }
+            throw budgetError;
+        }
+        heapFallbackCount.increment();
+        return ByteBuffer.allocate(capacity);
+    }
+
+    private void updatePeak(long used) {
+        long peak;
+        while (used > (peak = peakBytes.get())) {
+            if (peakBytes.compareAndSet(peak, used)) {
+                break;
+            }
+        }
+    }
+
+    private static String allocationSite() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            if (!element.getClassName().startsWith("org.zxg.network.core.")) {
+                return element.toString();
+            }
+        }
+        return "unknown";
+    }
+
+    public void free(ByteBuffer buffer, String tag) {
+        if (!buffer.isDirect()) {
+            return;
+        }
+        final int capacity = buffer.capacity();
+        final BufferReference reference = removeReference(buffer);
+        if (reference != null) {
+            reference.clear();
+            release(capacity, tag);
+            if (reference.site != null) {
+                usageBySite.get(reference.site).add(-capacity);
+            }
+        }
+        expungeLeaks();
+        DirectBufferCleaner.clean(buffer);
+    }
+
+    public void registerMBean() throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) {
+            server.registerMBean(this, name);
+        }
+    }
+
+    public long usedBytes(String tag) {
+        expungeLeaks();
+        final LongAdder tagUsage = usageByTag.get(tag);
+        return tagUsage != null ? tagUsage.sum() : 0L;
+    }
+
+    public boolean isTrackSites() {
+        return trackSites;
+    }
+
+    public void setTrackSites(boolean trackSites) {
+        this.trackSites = trackSites;
+    }
+
+    @Override
+    public long getUsedBytes() {
+        expungeLeaks();
+        return usedBytes.get();
+    }
+
+    @Override
+    public long getPeakBytes() {
+        return peakBytes.get();
+    }
+
+    @Override
+    public long getSoftLimit() {
+        return softLimit;
+    }
+
+    @Override
+    public void setSoftLimit(long softLimit) {
+        this.softLimit = softLimit;
+    }
+
+    @Override
+    public long getHardLimit() {
+        return hardLimit;
+    }
+
+    @Override
+    public void setHardLimit(long hardLimit) {
+        this.hardLimit = hardLimit;
+    }
+
+    @Override
+    public boolean isHeapFallback() {
+        return heapFallback;
+    }
+
+    @Override
+    public void setHeapFallback(boolean heapFallback) {
+        this.heapFallback = heapFallback;
+    }
+
+    @Override
+    public long getAllocationCount() {
+        return allocationCount.sum();
+    }
+
+    @Override
+    public long getHeapFallbackCount() {
+        return heapFallbackCount.sum();
+    }
+
+    @Override
+    public long getSoftLimitExceededCount() {
+        return softLimitExceededCount.sum();
+    }
+
+    @Override
+    public Map<String, Long> getUsageByTag() {
+        expungeLeaks();
+        return snapshot(usageByTag);
+    }
+
+    @Override
+    public Map<String, Long> getUsageBySite() {
+        expungeLeaks();
+        return snapshot(usageBySite);
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> usage) {
+        final Map<String, Long> snapshot = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : usage.entrySet()) {
+            final long bytes = entry.getValue().sum();
+            if (bytes != 0L) {
+                snapshot.put(entry.getKey(), bytes);
+            }
+        }
+        return snapshot;
+    }
+
+    private static class BufferReference extends WeakReference<ByteBuffer> {
+
+        final int hash;
+        final int capacity;
+        final String tag;
+        final String site;
+
+        BufferReference(ByteBuffer buffer, String tag, String site, ReferenceQueue<ByteBuffer> queue) {
+            super(buffer, queue);
+            this.hash = System.identityHashCode(buffer);
+            this.capacity = buffer.capacity();
+            this.tag = tag;
+            this.site = site;
+        }
+    }
+}
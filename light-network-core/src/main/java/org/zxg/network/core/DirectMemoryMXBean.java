@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core;
+
+import java.util.Map;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public interface DirectMemoryMXBean {
+
+    long getUsedBytes();
+
+    long getPeakBytes();
+
+    long getSoftLimit();
+
+    void setSoftLimit(long softLimit);
+
+    long getHardLimit();
+
+    void setHardLimit(long hardLimit);
+
+    boolean isHeapFallback();
+
+    void setHeapFallback(boolean heapFallback);
+
+    long getAllocationCount();
+
+    long getHeapFallbackCount();
+
+    long getSoftLimitExceededCount();
+
+    Map<String, Long> getUsageByTag();
+
+    Map<String, Long> getUsageBySite();
+}
@@ -19,15 +19,38 @@ package org.zxg.network.core;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.channels.AsynchronousChannelGroup;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
  */
 public class EventLoop implements Closeable {
 
+    private static class Prober {
+        static final ScheduledExecutorService instance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "event-loop-prober");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static final long DEFAULT_PROBE_INTERVAL_MILLIS = 100L;
+
     private final AsynchronousChannelGroup channelGroup;
+    private final AtomicLong completionLatencyNanos = new AtomicLong();
+    private final AtomicLong pendingWriteBytes = new AtomicLong();
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private volatile long probeStartNanos;
+    private ScheduledFuture<?> probeFuture;
+    private boolean closed;
 
     public EventLoop() throws IOException {
         this(Runtime.getRuntime().availableProcessors());
@@ -45,8 +68,53 @@ public class EventLoop implements Closeable {
         this.channelGroup = channelGroup;
     }
 
+    public EventLoop(AsynchronousChannelGroup channelGroup, long probeInterval, TimeUnit unit) {
+        this(channelGroup);
+        startProbing(probeInterval, unit);
+    }
+
+    public void startProbing() {
+        startProbing(DEFAULT_PROBE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void startProbing(long probeInterval, TimeUnit unit) {
+        if (probeFuture != null || closed || !(channelGroup instanceof Executor) || probeInterval <= 0L) {
+            return;
+        }
+        final Executor executor = (Executor) channelGroup;
+        probeFuture = Prober.instance.scheduleWithFixedDelay(() -> probe(executor),
+                probeInterval, probeInterval, unit);
+    }
+
+    public synchronized boolean isProbing() {
+        return probeFuture != null;
+    }
+
+    private void probe(Executor executor) {
+        if (!probing.compareAndSet(false, true)) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        probeStartNanos = startNanos;
+        try {
+            executor.execute(() -> {
+                recordCompletionLatency(System.nanoTime() - startNanos);
+                probing.set(false);
+            });
+        } catch (RejectedExecutionException exc) {
+            probing.set(false);
+        }
+    }
+
     @Override
     public void close() {
+        synchronized (this) {
+            closed = true;
+            if (probeFuture != null) {
+                probeFuture.cancel(false);
+                probeFuture = null;
+            }
+        }
         if (!channelGroup.isShutdown()) {
             this.channelGroup.shutdown();
         }
@@ -55,4 +123,27 @@ public class EventLoop implements Closeable {
     public AsynchronousChannelGroup channelGroup() {
         return channelGroup;
     }
+
+    private void recordCompletionLatency(long latencyNanos) {
+        long average;
+        do {
+            average = completionLatencyNanos.get();
+        } while (!completionLatencyNanos.compareAndSet(average, average + ((latencyNanos - average) >> 3)));
+    }
+
+    void addPendingWriteBytes(long delta) {
+        pendingWriteBytes.addAndGet(delta);
+    }
+
+    public long completionLatencyNanos() {
+        final long average = completionLatencyNanos.get();
+        if (probing.get()) {
+            return Math.max(average, System.nanoTime() - probeStartNanos);
+        }
+        return average;
+    }
+
+    public long pendingWriteBytes() {
+        return pendingWriteBytes.get();
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides where a connection's handler and the completions of its read/write futures run.
+ * <p>
+ * With {@link #offload} and {@link #ordered}, completions are dispatched to the same executor that
+ * runs the handler. A handler must therefore never block on its own connection's futures
+ * ({@code get()}/{@code join()}): the completion it waits for is queued behind it, which deadlocks
+ * an ordered executor immediately and an offload pool once all of its threads are blocked. Chain
+ * continuations instead.
+ *
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class ExecutionPolicy implements Closeable {
+
+    private static final ExecutionPolicy inlinePolicy = new ExecutionPolicy(new ThreadPoolExecutor[0]);
+
+    private final ThreadPoolExecutor[] executors;
+    private final AtomicInteger nextExecutor = new AtomicInteger();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public static ExecutionPolicy inline() {
+        return inlinePolicy;
+    }
+
+    public static ExecutionPolicy offload(int nThreads, int queueCapacity) {
+        return offload(nThreads, queueCapacity, Executors.defaultThreadFactory());
+    }
+
+    public static ExecutionPolicy offload(int nThreads, int queueCapacity, ThreadFactory threadFactory) {
+        return new ExecutionPolicy(new ThreadPoolExecutor[]{
+                newExecutor(nThreads, queueCapacity, threadFactory)});
+    }
+
+    public static ExecutionPolicy ordered(int nThreads, int queueCapacity) {
+        return ordered(nThreads, queueCapacity, Executors.defaultThreadFactory());
+    }
+
+    public static ExecutionPolicy ordered(int nThreads, int queueCapacity, ThreadFactory threadFactory) {
+        final ThreadPoolExecutor[] executors = new ThreadPoolExecutor[nThreads];
+        for (int index = 0; index < nThreads; ++index) {
+            executors[index] = newExecutor(1, queueCapacity, threadFactory);
+        }
+        return new ExecutionPolicy(executors);
+    }
+
+    private static ThreadPoolExecutor newExecutor(int nThreads, int queueCapacity,
+                                                  ThreadFactory threadFactory) {
+        return new ThreadPoolExecutor(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+    }
+
+    private ExecutionPolicy(ThreadPoolExecutor[] executors) {
+        this.executors = executors;
+    }
+
+    public Executor assign(Connection connection) {
+        if (0 == executors.length) {
+            return connection.executor();
+        }
+        final ThreadPoolExecutor executor;
+        if (1 == executors.length) {
+            executor = executors[0];
+        } else {
+            executor = executors[(nextExecutor.getAndIncrement() & Integer.MAX_VALUE) % executors.length];
+        }
+        return command -> {
+            try {
+                executor.execute(command);
+            } catch (RejectedExecutionException exc) {
+                rejectedCount.increment();
+                throw exc;
+            }
+        };
+    }
+
+    public boolean isInline() {
+        return 0 == executors.length;
+    }
+
+    public int queueDepth() {
+        int depth = 0;
+        for (ThreadPoolExecutor executor : executors) {
+            depth += executor.getQueue().size();
+        }
+        return depth;
+    }
+
+    public int activeCount() {
+        int count = 0;
+        for (ThreadPoolExecutor executor : executors) {
+            count += executor.getActiveCount();
+        }
+        return count;
+    }
+
+    public long rejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public void close() {
+        for (ThreadPoolExecutor executor : executors) {
+            executor.shutdown();
+        }
+    }
+}
@@ -21,6 +21,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -33,28 +35,67 @@ public class Handler implements Consumer<Connection> {
 
     private final Function<Connection, CompletionStage<?>> asyncHandler;
     private final Logger logger;
+    private final ExecutionPolicy policy;
 
     public Handler(Function<Connection, CompletionStage<?>> asyncHandler) {
         this(asyncHandler, defaultLogger);
     }
 
     public Handler(Function<Connection, CompletionStage<?>> asyncHandler, Logger logger) {
+        this(asyncHandler, logger, ExecutionPolicy.inline());
+    }
+
+    public Handler(Function<Connection, CompletionStage<?>> asyncHandler, ExecutionPolicy policy) {
+        this(asyncHandler, defaultLogger, policy);
+    }
+
+    public Handler(Function<Connection, CompletionStage<?>> asyncHandler, Logger logger,
+                   ExecutionPolicy policy) {
         this.asyncHandler = asyncHandler;
         this.logger = logger;
+        this.policy = policy;
     }
 
     @Override
     public void accept(Connection connection) {
-        asyncHandler.apply(connection).handle((result, exception) -> {
+        final Executor executor = policy.assign(connection);
+        connection.executor(executor);
+        try {
+            executor.execute(() -> handle(connection));
+        } catch (RejectedExecutionException exc) {
+            logger.warn("Connection rejected by the execution policy, queue depth: {}, rejected: {}.",
+                    policy.queueDepth(), policy.rejectedCount());
+            close(connection);
+        }
+    }
+
+    private void handle(Connection connection) {
+        final CompletionStage<?> stage;
+        try {
+            stage = asyncHandler.apply(connection);
+        } catch (Exception exc) {
+            logger.error(exc.getMessage(), exc);
+            close(connection);
+            return;
+        }
+        stage.handle((result, exception) -> {
             if (exception != null) {
                 logger.error(exception.getMessage(), exception);
             }
-            try {
-                connection.close();
-            } catch (IOException exc) {
-                logger.error(exc.getMessage(), exc);
-            }
+            close(connection);
             return null;
         });
     }
+
+    private void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (IOException exc) {
+            logger.error(exc.getMessage(), exc);
+        }
+    }
+
+    public ExecutionPolicy policy() {
+        return policy;
+    }
 }
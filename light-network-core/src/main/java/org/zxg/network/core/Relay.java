@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class Relay {
+
+    public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+    private static final BytesPool defaultPool = new BytesPool(true);
+
+    private final Connection left;
+    private final Connection right;
+    private final BytesPool pool;
+    private final int bufferSize;
+    private final AtomicLong leftToRightBytes = new AtomicLong();
+    private final AtomicLong rightToLeftBytes = new AtomicLong();
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    public Relay(Connection left, Connection right) {
+        this(left, right, defaultPool, DEFAULT_BUFFER_SIZE);
+    }
+
+    public Relay(Connection left, Connection right, BytesPool pool, int bufferSize) {
+        this.left = left;
+        this.right = right;
+        this.pool = pool;
+        this.bufferSize = bufferSize;
+    }
+
+    public CompletableFuture<Void> start() {
+        final Bytes leftToRightBuffer = pool.allocate(bufferSize);
+        final Bytes rightToLeftBuffer = pool.allocate(bufferSize);
+        final CompletableFuture<Void> leftToRight = new CompletableFuture<>();
+        final CompletableFuture<Void> rightToLeft = new CompletableFuture<>();
+        forward(left, right, leftToRightBuffer, leftToRightBytes, leftToRight);
+        forward(right, left, rightToLeftBuffer, rightToLeftBytes, rightToLeft);
+        CompletableFuture.allOf(leftToRight, rightToLeft).whenComplete((result, exc) -> {
+            leftToRightBuffer.free();
+            rightToLeftBuffer.free();
+            if (exc != null) {
+                future.completeExceptionally(exc);
+            } else {
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
+    private void forward(Connection from, Connection to, Bytes buffer, AtomicLong counter,
+                         CompletableFuture<Void> done) {
+        from.read(buffer).whenComplete((bytes, exc) -> {
+            if (exc != null) {
+                abort(done, exc);
+                return;
+            }
+            final int length = bytes.length();
+            if (0 == length) {
+                try {
+                    to.shutdownOutput();
+                    done.complete(null);
+                } catch (IOException shutdownExc) {
+                    abort(done, shutdownExc);
+                }
+                return;
+            }
+            to.write(bytes).whenComplete((writtenBytes, writeExc) -> {
+                if (writeExc != null) {
+                    abort(done, writeExc);
+                } else {
+                    counter.addAndGet(length);
+                    forward(from, to, buffer, counter, done);
+                }
+            });
+        });
+    }
+
+    private void abort(CompletableFuture<Void> done, Throwable exc) {
+        try {
+            left.close();
+        } catch (IOException closeExc) {
+            exc.addSuppressed(closeExc);
+        }
+        try {
+            right.close();
+        } catch (IOException closeExc) {
+            exc.addSuppressed(closeExc);
+        }
+        done.completeExceptionally(exc);
+    }
+
+    public CompletableFuture<Void> future() {
+        return future;
+    }
+
+    public Connection left() {
+        return left;
+    }
+
+    public Connection right() {
+        return right;
+    }
+
+    public long leftToRightBytes() {
+        return leftToRightBytes.get();
+    }
+
+    public long rightToLeftBytes() {
+        return rightToLeftBytes.get();
+    }
+}
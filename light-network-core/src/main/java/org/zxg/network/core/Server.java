@@ -37,14 +37,18 @@ public class Server implements Closeable {
 
     private static final Logger defaultLogger = LoggerFactory.getLogger(Server.class);
 
+    private final EventLoop loop;
     private final AsynchronousServerSocketChannel channel;
     private final Logger logger;
+    private volatile AdmissionControl admissionControl;
+    private volatile CaptureLog captureLog;
 
     public Server(EventLoop loop) throws IOException {
         this(loop, defaultLogger);
     }
 
     public Server(EventLoop loop, Logger logger) throws IOException {
+        this.loop = loop;
         this.channel = AsynchronousServerSocketChannel.open(loop.channelGroup());
         this.logger = logger;
     }
@@ -61,6 +65,11 @@ public class Server implements Closeable {
         return serve(new Handler(handler));
     }
 
+    public CompletableFuture<Void> serve(Function<Connection, CompletionStage<?>> handler,
+                                         ExecutionPolicy policy) {
+        return serve(new Handler(handler, policy));
+    }
+
     public CompletableFuture<Void> serve(Consumer<Connection> handler) {
         final CompletableFuture<Void> future = new CompletableFuture<>();
         this.channel.accept(null, new CompletionHandler<AsynchronousSocketChannel, Object>() {
@@ -74,7 +83,11 @@ public class Server implements Closeable {
                     }
                 } else {
                     Server.this.channel.accept(null, this);
-                    final Connection connection = new Connection(result);
+                    final Connection connection = new Connection(result, loop);
+                    connection.captureLog(captureLog);
+                    if (!admit(connection)) {
+                        return;
+                    }
                     try {
                         handler.accept(connection);
                     } catch (Exception exc) {
@@ -91,6 +104,58 @@ public class Server implements Closeable {
         return future;
     }
 
+    private boolean admit(Connection connection) {
+        final AdmissionControl admissionControl = this.admissionControl;
+        if (null == admissionControl) {
+            return true;
+        }
+        AdmissionControl.Decision decision;
+        try {
+            decision = admissionControl.admit(connection.channel().getRemoteAddress(), loop);
+        } catch (IOException exc) {
+            logger.error(exc.getMessage(), exc);
+            decision = admissionControl.admit(null, loop);
+        }
+        if (AdmissionControl.Decision.ADMIT == decision) {
+            connection.closeFuture().thenRun(admissionControl::release);
+            return true;
+        }
+        final Bytes rejectionMessage = admissionControl.rejectionMessage();
+        if (null == rejectionMessage) {
+            close(connection);
+        } else {
+            connection.write(rejectionMessage.duplicate()).whenComplete((bytes, exc) -> close(connection));
+        }
+        return false;
+    }
+
+    private void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (IOException exc) {
+            logger.error(exc.getMessage(), exc);
+        }
+    }
+
+    public AdmissionControl admissionControl() {
+        return admissionControl;
+    }
+
+    public void admissionControl(AdmissionControl admissionControl) {
+        if (admissionControl != null && admissionControl.maxCompletionLatencyNanos() > 0L) {
+            loop.startProbing();
+        }
+        this.admissionControl = admissionControl;
+    }
+
+    public CaptureLog captureLog() {
+        return captureLog;
+    }
+
+    public void captureLog(CaptureLog captureLog) {
+        this.captureLog = captureLog;
+    }
+
     @Override
     public void close() throws IOException {
         if (channel.isOpen()) {
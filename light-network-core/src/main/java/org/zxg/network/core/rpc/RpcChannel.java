@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core.rpc;
+
+import org.zxg.network.core.Bytes;
+import org.zxg.network.core.CompositeBytes;
+import org.zxg.network.core.Connection;
+import org.zxg.network.core.IncompleteReadException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+abstract class RpcChannel {
+
+    static final int HEADER_LENGTH = 13;
+    static final byte REQUEST = 0;
+    static final byte RESPONSE = 1;
+    static final byte ERROR = 2;
+
+    protected final Connection connection;
+    private final int maxFrameLength;
+    private final Bytes header = new Bytes(HEADER_LENGTH, false);
+    private final CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+    private final Object writeLock = new Object();
+    private List<Bytes> pendingWrites = new ArrayList<>();
+    private boolean writing = false;
+
+    RpcChannel(Connection connection, int maxFrameLength) {
+        this.connection = connection;
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    protected abstract boolean onFrame(byte type, long id, Bytes payload);
+
+    protected abstract void onClose(Throwable exc);
+
+    protected void readNext() {
+        connection.readExactly(header, HEADER_LENGTH).thenCompose(headerBytes -> {
+            final ByteBuffer buffer = headerBytes.buffer();
+            final int length = buffer.getInt(0);
+            if (length < 0 || length > maxFrameLength) {
+                throw new CompletionException(new RpcException(
+                        "Frame length " + length + " is out of range [0, " + maxFrameLength + "]."));
+            }
+            final long id = buffer.getLong(4);
+            final byte type = buffer.get(12);
+            return connection.readExactly(new Bytes(length, false), length).thenApply(payload ->
+                    onFrame(type, id, payload));
+        }).whenComplete((next, exc) -> {
+            if (exc != null) {
+                if (exc instanceof CompletionException) {
+                    exc = exc.getCause();
+                }
+                if (exc instanceof IncompleteReadException && 0 == header.length()) {
+                    close(null);
+                } else {
+                    close(exc);
+                }
+            } else if (next) {
+                readNext();
+            }
+        });
+    }
+
+    protected void send(byte type, long id, Bytes payload) {
+        final Bytes frameHeader = new Bytes(HEADER_LENGTH, false);
+        frameHeader.buffer().putInt(0, payload.length()).putLong(4, id).put(12, type);
+        synchronized (writeLock) {
+            pendingWrites.add(frameHeader);
+            pendingWrites.add(payload);
+            if (writing) {
+                return;
+            }
+            writing = true;
+        }
+        flush();
+    }
+
+    private void flush() {
+        final List<Bytes> batch;
+        synchronized (writeLock) {
+            if (pendingWrites.isEmpty()) {
+                writing = false;
+                return;
+            }
+            batch = pendingWrites;
+            pendingWrites = new ArrayList<>();
+        }
+        connection.write(new CompositeBytes(batch)).whenComplete((bytes, exc) -> {
+            if (exc != null) {
+                close(exc);
+            } else {
+                flush();
+            }
+        });
+    }
+
+    protected void close(Throwable exc) {
+        try {
+            connection.close();
+        } catch (IOException closeExc) {
+            if (null == exc) {
+                exc = closeExc;
+            }
+        }
+        if (exc != null ? closeFuture.completeExceptionally(exc) : closeFuture.complete(null)) {
+            onClose(exc);
+        }
+    }
+
+    public CompletableFuture<Void> closeFuture() {
+        return closeFuture;
+    }
+
+    public Connection connection() {
+        return connection;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core.rpc;
+
+import org.zxg.network.core.Bytes;
+import org.zxg.network.core.Connection;
+
+import java.io.Closeable;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class RpcClient extends RpcChannel implements Closeable {
+
+    private static class DefaultScheduler {
+        static final ScheduledExecutorService instance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "rpc-client-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final Semaphore permits;
+    private final Map<Long, CompletableFuture<Bytes>> pendingCalls = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    public RpcClient(Connection connection) {
+        this(connection, RpcServer.DEFAULT_MAX_CONCURRENT_REQUESTS, RpcServer.DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    public RpcClient(Connection connection, int maxConcurrentRequests, int maxFrameLength) {
+        this(connection, maxConcurrentRequests, maxFrameLength, null);
+    }
+
+    public RpcClient(Connection connection, int maxConcurrentRequests, int maxFrameLength,
+                     ScheduledExecutorService scheduler) {
+        super(connection, maxFrameLength);
+        this.permits = new Semaphore(maxConcurrentRequests);
+        this.scheduler = scheduler;
+        readNext();
+    }
+
+    public CompletableFuture<Bytes> call(Bytes request) {
+        return call(request, 0L, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<Bytes> call(Bytes request, long timeout, TimeUnit unit) {
+        final CompletableFuture<Bytes> future = new CompletableFuture<>();
+        if (closeFuture().isDone()) {
+            future.completeExceptionally(new ClosedChannelException());
+            return future;
+        }
+        if (!permits.tryAcquire()) {
+            future.completeExceptionally(new RejectedExecutionException(
+                    "Too many outstanding requests."));
+            return future;
+        }
+        final long id = nextId.getAndIncrement();
+        pendingCalls.put(id, future);
+        if (timeout > 0L) {
+            final ScheduledFuture<?> deadline = scheduler().schedule(() -> {
+                if (pendingCalls.remove(id, future)) {
+                    permits.release();
+                    future.completeExceptionally(new TimeoutException());
+                }
+            }, timeout, unit);
+            future.whenComplete((response, exc) -> deadline.cancel(false));
+        }
+        if (closeFuture().isDone() && pendingCalls.remove(id, future)) {
+            permits.release();
+            future.completeExceptionally(new ClosedChannelException());
+            return future;
+        }
+        send(REQUEST, id, request);
+        return future;
+    }
+
+    private ScheduledExecutorService scheduler() {
+        return scheduler != null ? scheduler : DefaultScheduler.instance;
+    }
+
+    @Override
+    protected boolean onFrame(byte type, long id, Bytes payload) {
+        final CompletableFuture<Bytes> future = pendingCalls.remove(id);
+        if (future != null) {
+            permits.release();
+            if (ERROR == type) {
+                future.completeExceptionally(new RpcException(
+                        new String(payload.get(), StandardCharsets.UTF_8)));
+            } else {
+                future.complete(payload);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void onClose(Throwable exc) {
+        final Throwable cause = exc != null ? exc : new ClosedChannelException();
+        for (Long id : pendingCalls.keySet()) {
+            final CompletableFuture<Bytes> future = pendingCalls.remove(id);
+            if (future != null) {
+                permits.release();
+                future.completeExceptionally(cause);
+            }
+        }
+    }
+
+    public int outstandingRequests() {
+        return pendingCalls.size();
+    }
+
+    @Override
+    public void close() {
+        close(null);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.core.rpc;
+
+import org.zxg.network.core.Bytes;
+import org.zxg.network.core.Connection;
+import org.zxg.network.core.ExecutionPolicy;
+import org.zxg.network.core.Server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class RpcServer {
+
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 64;
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    private final Function<Bytes, CompletionStage<Bytes>> handler;
+    private final int maxConcurrentRequests;
+    private final int maxFrameLength;
+
+    public RpcServer(Function<Bytes, CompletionStage<Bytes>> handler) {
+        this(handler, DEFAULT_MAX_CONCURRENT_REQUESTS, DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    public RpcServer(Function<Bytes, CompletionStage<Bytes>> handler, int maxConcurrentRequests,
+                     int maxFrameLength) {
+        if (maxConcurrentRequests <= 0) {
+            throw new IllegalArgumentException(String.valueOf(maxConcurrentRequests));
+        }
+        this.handler = handler;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    public CompletableFuture<Void> serve(Server server) {
+        return server.serve(this::handle);
+    }
+
+    public CompletableFuture<Void> serve(Server server, ExecutionPolicy policy) {
+        return server.serve(this::handle, policy);
+    }
+
+    public CompletionStage<Void> handle(Connection connection) {
+        final ServerChannel channel = new ServerChannel(connection);
+        channel.readNext();
+        return channel.closeFuture();
+    }
+
+    private class ServerChannel extends RpcChannel {
+
+        private int inFlight = 0;
+        private boolean paused = false;
+
+        ServerChannel(Connection connection) {
+            super(connection, maxFrameLength);
+        }
+
+        @Override
+        protected boolean onFrame(byte type, long id, Bytes payload) {
+            if (type != REQUEST) {
+                close(new RpcException("Unexpected frame type " + type + "."));
+                return false;
+            }
+            synchronized (this) {
+                ++inFlight;
+            }
+            CompletionStage<Bytes> response;
+            try {
+                response = handler.apply(payload);
+            } catch (Exception exc) {
+                final CompletableFuture<Bytes> failed = new CompletableFuture<>();
+                failed.completeExceptionally(exc);
+                response = failed;
+            }
+            response.whenComplete((result, exc) -> {
+                if (exc != null) {
+                    final String message = String.valueOf(exc.getMessage());
+                    send(ERROR, id, new Bytes(message.getBytes(StandardCharsets.UTF_8), false));
+                } else {
+                    send(RESPONSE, id, result);
+                }
+                final boolean resume;
+                synchronized (this) {
+                    --inFlight;
+                    resume = paused;
+                    paused = false;
+                }
+                if (resume) {
+                    readNext();
+                }
+            });
+            synchronized (this) {
+                if (inFlight >= maxConcurrentRequests) {
+                    paused = true;
+                    return false;
+                }
+                return true;
+            }
+        }
+
+        @Override
+        protected void onClose(Throwable exc) {
+        }
+    }
+}
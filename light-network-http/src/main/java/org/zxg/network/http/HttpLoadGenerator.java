@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.http;
+
+import org.zxg.network.core.Bytes;
+import org.zxg.network.core.Client;
+import org.zxg.network.core.EventLoop;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class HttpLoadGenerator {
+
+    private static final byte[] HEADER_END = "\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final SocketAddress remote;
+    private final Bytes request;
+    private final int connections;
+    private final int pipelineDepth;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: HttpLoadGenerator <host> <port> [connections] [seconds] [pipeline] [path]");
+            System.exit(1);
+        }
+        final String host = args[0];
+        final int port = Integer.parseInt(args[1]);
+        final int connections = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        final int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        final int pipeline = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+        final String path = args.length > 5 ? args[5] : "/";
+        try (EventLoop loop = new EventLoop()) {
+            final HttpLoadGenerator generator = new HttpLoadGenerator(
+                    new InetSocketAddress(host, port), host, path, connections, pipeline);
+            System.out.println(generator.run(loop, seconds, TimeUnit.SECONDS));
+        }
+    }
+
+    public HttpLoadGenerator(SocketAddress remote, String host, String path, int connections,
+                             int pipelineDepth) {
+        final StringBuilder builder = new StringBuilder();
+        for (int index = 0; index < pipelineDepth; ++index) {
+            builder.append("GET ").append(path).append(" HTTP/1.1\r\nHost: ").append(host).append("\r\n\r\n");
+        }
+        this.remote = remote;
+        this.request = new Bytes(builder.toString().getBytes(StandardCharsets.ISO_8859_1), true);
+        this.connections = connections;
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    public Result run(EventLoop loop, long duration, TimeUnit unit) throws IOException, InterruptedException {
+        final long begin = System.nanoTime();
+        final long deadline = begin + unit.toNanos(duration);
+        final List<Worker> workers = new ArrayList<>(connections);
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(connections);
+        for (int index = 0; index < connections; ++index) {
+            final Worker worker = new Worker(new Client(loop), deadline);
+            workers.add(worker);
+            futures.add(worker.start());
+        }
+        int errors = 0;
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.get();
+            } catch (Exception exc) {
+                ++errors;
+            }
+        }
+        final long elapsed = System.nanoTime() - begin;
+        int count = 0;
+        int failedResponses = 0;
+        for (Worker worker : workers) {
+            count += worker.latencyCount;
+            failedResponses += worker.failedResponses;
+            worker.client.close();
+        }
+        final long[] latencies = new long[count];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, latencies, offset, worker.latencyCount);
+            offset += worker.latencyCount;
+        }
+        Arrays.sort(latencies);
+        return new Result(count, failedResponses, errors, elapsed, latencies);
+    }
+
+    public static class Result {
+
+        private final int requests;
+        private final int failedResponses;
+        private final int failedConnections;
+        private final long elapsedNanos;
+        private final long[] sortedLatencies;
+
+        Result(int requests, int failedResponses, int failedConnections, long elapsedNanos,
+               long[] sortedLatencies) {
+            this.requests = requests;
+            this.failedResponses = failedResponses;
+            this.failedConnections = failedConnections;
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatencies = sortedLatencies;
+        }
+
+        public int requests() {
+            return requests;
+        }
+
+        public double requestsPerSecond() {
+            return requests * 1e9 / elapsedNanos;
+        }
+
+        public long percentileNanos(double percentile) {
+            if (0 == sortedLatencies.length) {
+                return 0L;
+            }
+            final int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("requests: %d, non-2xx: %d, failed connections: %d, %.1f req/s, "
+                            + "p50: %.1f us, p99: %.1f us, max: %.1f us",
+                    requests, failedResponses, failedConnections, requestsPerSecond(),
+                    percentileNanos(50) / 1e3, percentileNanos(99) / 1e3, percentileNanos(100) / 1e3);
+        }
+    }
+
+    private class Worker {
+
+        private final Client client;
+        private final long deadline;
+        private final Bytes buffer = new Bytes(64 * 1024, false, 16 * 1024 * 1024);
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private long[] latencies = new long[1024];
+        private int latencyCount = 0;
+        private int failedResponses = 0;
+        private long sentAt;
+        private int remainingResponses;
+
+        Worker(Client client, long deadline) {
+            this.client = client;
+            this.deadline = deadline;
+            buffer.removeRight(buffer.length());
+        }
+
+        CompletableFuture<Void> start() {
+            try {
+                client.channel().setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException exc) {
+                future.completeExceptionally(exc);
+                return future;
+            }
+            client.connect(remote).whenComplete((result, exc) -> {
+                if (exc != null) {
+                    future.completeExceptionally(exc);
+                } else {
+                    send();
+                }
+            });
+            return future;
+        }
+
+        private void send() {
+            if (System.nanoTime() >= deadline) {
+                future.complete(null);
+                return;
+            }
+            sentAt = System.nanoTime();
+            remainingResponses = pipelineDepth;
+            client.write(request.duplicate()).whenComplete((bytes, exc) -> {
+                if (exc != null) {
+                    future.completeExceptionally(exc);
+                } else {
+                    receive();
+                }
+            });
+        }
+
+        private void receive() {
+            while (remainingResponses > 0) {
+                final int length = parseResponse();
+                if (length < 0) {
+                    final int bufferedLength = buffer.length();
+                    client.readMore(buffer).whenComplete((bytes, exc) -> {
+                        if (exc != null) {
+                            future.completeExceptionally(exc);
+                        } else if (buffer.length() == bufferedLength) {
+                            future.completeExceptionally(new IOException("Connection closed by peer."));
+                        } else {
+                            receive();
+                        }
+                    });
+                    return;
+                }
+                buffer.removeLeft(length);
+                record(System.nanoTime() - sentAt);
+                --remainingResponses;
+            }
+            send();
+        }
+
+        private void record(long latency) {
+            if (latencyCount == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            }
+            latencies[latencyCount++] = latency;
+        }
+
+        private int parseResponse() {
+            final int length = buffer.length();
+            int headerEnd = -1;
+            for (int index = 0; index + HEADER_END.length <= length; ++index) {
+                if (buffer.get(index) == '\r' && buffer.get(index + 1) == '\n'
+                        && buffer.get(index + 2) == '\r' && buffer.get(index + 3) == '\n') {
+                    headerEnd = index + HEADER_END.length;
+                    break;
+                }
+            }
+            if (headerEnd < 0) {
+                return -1;
+            }
+            final String head = new String(buffer.get(0, headerEnd), StandardCharsets.ISO_8859_1);
+            final int status = Integer.parseInt(head.substring(9, 12));
+            int contentLength = 0;
+            for (String line : head.split("\r\n")) {
+                final int colon = line.indexOf(':');
+                if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+                    contentLength = Integer.parseInt(line.substring(colon + 1).trim());
+                }
+            }
+            if (headerEnd + contentLength > length) {
+                return -1;
+            }
+            if (status < 200 || status >= 300) {
+                ++failedResponses;
+            }
+            return headerEnd + contentLength;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.http;
+
+import org.zxg.network.core.Bytes;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class HttpRequest {
+
+    private final Bytes bytes;
+    private final int methodBegin;
+    private final int methodEnd;
+    private final int targetBegin;
+    private final int targetEnd;
+    private final int minorVersion;
+    private final int[] headers;
+    private final int headerCount;
+    private final int bodyBegin;
+    private final int bodyLength;
+    private final int length;
+    private final boolean keepAlive;
+    private final boolean chunked;
+    private String method;
+    private String target;
+
+    HttpRequest(Bytes bytes, int methodBegin, int methodEnd, int targetBegin, int targetEnd,
+                int minorVersion, int[] headers, int headerCount, int bodyBegin, int bodyLength,
+                int length, boolean keepAlive, boolean chunked) {
+        this.bytes = bytes;
+        this.methodBegin = methodBegin;
+        this.methodEnd = methodEnd;
+        this.targetBegin = targetBegin;
+        this.targetEnd = targetEnd;
+        this.minorVersion = minorVersion;
+        this.headers = headers;
+        this.headerCount = headerCount;
+        this.bodyBegin = bodyBegin;
+        this.bodyLength = bodyLength;
+        this.length = length;
+        this.keepAlive = keepAlive;
+        this.chunked = chunked;
+    }
+
+    static String string(Bytes bytes, int begin, int end) {
+        return new String(bytes.get(begin, end), StandardCharsets.ISO_8859_1);
+    }
+
+    static boolean equalsIgnoreCase(Bytes bytes, int begin, int end, String string) {
+        if (end - begin != string.length()) {
+            return false;
+        }
+        for (int index = begin; index < end; ++index) {
+            final char c = (char) (bytes.get(index) & 0xff);
+            if (Character.toLowerCase(c) != Character.toLowerCase(string.charAt(index - begin))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String method() {
+        if (null == method) {
+            method = string(bytes, methodBegin, methodEnd);
+        }
+        return method;
+    }
+
+    public boolean isMethod(String method) {
+        return equalsIgnoreCase(bytes, methodBegin, methodEnd, method);
+    }
+
+    public String target() {
+        if (null == target) {
+            target = string(bytes, targetBegin, targetEnd);
+        }
+        return target;
+    }
+
+    public String path() {
+        final String target = target();
+        final int queryIndex = target.indexOf('?');
+        return queryIndex < 0 ? target : target.substring(0, queryIndex);
+    }
+
+    public int minorVersion() {
+        return minorVersion;
+    }
+
+    public int headerCount() {
+        return headerCount;
+    }
+
+    public String headerName(int index) {
+        return string(bytes, headers[index * 4], headers[index * 4 + 1]);
+    }
+
+    public String headerValue(int index) {
+        return string(bytes, headers[index * 4 + 2], headers[index * 4 + 3]);
+    }
+
+    public String header(String name) {
+        for (int index = 0; index < headerCount; ++index) {
+            if (equalsIgnoreCase(bytes, headers[index * 4], headers[index * 4 + 1], name)) {
+                return headerValue(index);
+            }
+        }
+        return null;
+    }
+
+    public Bytes body() {
+        final Bytes body = bytes.duplicate();
+        body.removeLeft(bodyBegin);
+        body.removeRight(body.length() - bodyLength);
+        return body;
+    }
+
+    public int bodyLength() {
+        return bodyLength;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    public boolean isChunked() {
+        return chunked;
+    }
+
+    @Override
+    public String toString() {
+        return method() + ' ' + target() + " HTTP/1." + minorVersion;
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.http;
+
+import org.zxg.network.core.Bytes;
+
+import java.util.Arrays;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class HttpRequestParser {
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte SP = ' ';
+    private static final byte HT = '\t';
+    private static final byte COLON = ':';
+    private static final byte SEMICOLON = ';';
+
+    public static final int DEFAULT_MAX_HEADER_COUNT = 100;
+
+    private final int maxHeaderCount;
+
+    public HttpRequestParser() {
+        this(DEFAULT_MAX_HEADER_COUNT);
+    }
+
+    public HttpRequestParser(int maxHeaderCount) {
+        this.maxHeaderCount = maxHeaderCount;
+    }
+
+    private static int indexOf(Bytes bytes, byte value, int begin, int end) {
+        for (int index = begin; index < end; ++index) {
+            if (bytes.get(index) == value) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static int lineEnd(Bytes bytes, int begin, int lineFeed) {
+        return lineFeed > begin && bytes.get(lineFeed - 1) == CR ? lineFeed - 1 : lineFeed;
+    }
+
+    private static boolean isWhitespace(byte value) {
+        return SP == value || HT == value;
+    }
+
+    private static boolean containsToken(Bytes bytes, int begin, int end, String token) {
+        int tokenBegin = begin;
+        for (int index = begin; index <= end; ++index) {
+            if (index == end || bytes.get(index) == ',') {
+                int tokenEnd = index;
+                while (tokenBegin < tokenEnd && isWhitespace(bytes.get(tokenBegin))) {
+                    ++tokenBegin;
+                }
+                while (tokenEnd > tokenBegin && isWhitespace(bytes.get(tokenEnd - 1))) {
+                    --tokenEnd;
+                }
+                if (HttpRequest.equalsIgnoreCase(bytes, tokenBegin, tokenEnd, token)) {
+                    return true;
+                }
+                tokenBegin = index + 1;
+            }
+        }
+        return false;
+    }
+
+    private static boolean endsWithToken(Bytes bytes, int begin, int end, String token) {
+        int tokenBegin = end;
+        while (tokenBegin > begin && bytes.get(tokenBegin - 1) != ',') {
+            --tokenBegin;
+        }
+        while (tokenBegin < end && isWhitespace(bytes.get(tokenBegin))) {
+            ++tokenBegin;
+        }
+        return HttpRequest.equalsIgnoreCase(bytes, tokenBegin, end, token);
+    }
+
+    private static int parseContentLength(Bytes bytes, int begin, int end) throws HttpException {
+        if (begin == end) {
+            throw new HttpException(400, "Invalid Content-Length.");
+        }
+        long value = 0L;
+        for (int index = begin; index < end; ++index) {
+            final int digit = bytes.get(index) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new HttpException(400, "Invalid Content-Length.");
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE) {
+                throw new HttpException(413, "Content-Length is too large.");
+            }
+        }
+        return (int) value;
+    }
+
+    private static int parseChunkSize(Bytes bytes, int begin, int end) throws HttpException {
+        int value = 0;
+        int index = begin;
+        for (; index < end; ++index) {
+            final byte c = bytes.get(index);
+            final int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else if (c >= 'A' && c <= 'F') {
+                digit = c - 'A' + 10;
+            } else if (SEMICOLON == c || isWhitespace(c)) {
+                break;
+            } else {
+                throw new HttpException(400, "Invalid chunk size.");
+            }
+            if (value > (Integer.MAX_VALUE >> 4)) {
+                throw new HttpException(413, "Chunk is too large.");
+            }
+            value = (value << 4) | digit;
+        }
+        if (index == begin) {
+            throw new HttpException(400, "Invalid chunk size.");
+        }
+        return value;
+    }
+
+    /**
+     * Scans a chunked body starting at {@code begin}. When {@code decode} is set the chunk data is
+     * moved in place so that it becomes contiguous from {@code begin}.
+     *
+     * @return the end of the chunked body, or -1 if it is incomplete
+     */
+    private static long scanChunks(Bytes bytes, int begin, int length, boolean decode)
+            throws HttpException {
+        int index = begin;
+        int writeIndex = begin;
+        while (true) {
+            final int lineFeed = indexOf(bytes, LF, index, length);
+            if (lineFeed < 0) {
+                return -1L;
+            }
+            final int size = parseChunkSize(bytes, index, lineEnd(bytes, index, lineFeed));
+            index = lineFeed + 1;
+            if (0 == size) {
+                break;
+            }
+            if ((long) index + size + 2 > length) {
+                return -1L;
+            }
+            if (decode) {
+                for (int offset = 0; offset < size; ++offset) {
+                    bytes.set(writeIndex + offset, bytes.get(index + offset));
+                }
+            }
+            writeIndex += size;
+            index += size;
+            if (bytes.get(index) != CR || bytes.get(index + 1) != LF) {
+                throw new HttpException(400, "Invalid chunk terminator.");
+            }
+            index += 2;
+        }
+        while (true) {
+            final int lineFeed = indexOf(bytes, LF, index, length);
+            if (lineFeed < 0) {
+                return -1L;
+            }
+            final boolean empty = lineEnd(bytes, index, lineFeed) == index;
+            index = lineFeed + 1;
+            if (empty) {
+                break;
+            }
+        }
+        return ((long) (writeIndex - begin) << 32) | index;
+    }
+
+    public HttpRequest parse(Bytes bytes) throws HttpException {
+        final int length = bytes.length();
+        int index = 0;
+        while (index < length && (CR == bytes.get(index) || LF == bytes.get(index))) {
+            ++index;
+        }
+        int lineFeed = indexOf(bytes, LF, index, length);
+        if (lineFeed < 0) {
+            return null;
+        }
+        int end = lineEnd(bytes, index, lineFeed);
+        final int methodBegin = index;
+        final int methodEnd = indexOf(bytes, SP, methodBegin, end);
+        if (methodEnd <= methodBegin) {
+            throw new HttpException(400, "Invalid request line.");
+        }
+        final int targetBegin = methodEnd + 1;
+        final int targetEnd = indexOf(bytes, SP, targetBegin, end);
+        if (targetEnd <= targetBegin) {
+            throw new HttpException(400, "Invalid request line.");
+        }
+        final int versionBegin = targetEnd + 1;
+        if (end - versionBegin != 8
+                || !HttpRequest.string(bytes, versionBegin, end - 1).equals("HTTP/1.")) {
+            throw new HttpException(505, "HTTP Version Not Supported");
+        }
+        final int minorVersion = bytes.get(end - 1) - '0';
+        if (minorVersion < 0 || minorVersion > 1) {
+            throw new HttpException(505, "HTTP Version Not Supported");
+        }
+        index = lineFeed + 1;
+
+        int[] headers = new int[16 * 4];
+        int headerCount = 0;
+        int contentLength = -1;
+        boolean chunked = false;
+        boolean transferEncoding = false;
+        boolean close = false;
+        boolean keepAlive = false;
+        while (true) {
+            lineFeed = indexOf(bytes, LF, index, length);
+            if (lineFeed < 0) {
+                return null;
+            }
+            end = lineEnd(bytes, index, lineFeed);
+            if (end == index) {
+                index = lineFeed + 1;
+                break;
+            }
+            final int nameEnd = indexOf(bytes, COLON, index, end);
+            if (nameEnd <= index) {
+                throw new HttpException(400, "Invalid header.");
+            }
+            int valueBegin = nameEnd + 1;
+            while (valueBegin < end && isWhitespace(bytes.get(valueBegin))) {
+                ++valueBegin;
+            }
+            int valueEnd = end;
+            while (valueEnd > valueBegin && isWhitespace(bytes.get(valueEnd - 1))) {
+                --valueEnd;
+            }
+            if (headerCount == maxHeaderCount) {
+                throw new HttpException(431, "Too many headers.");
+            }
+            if (headers.length == headerCount * 4) {
+                headers = Arrays.copyOf(headers, headers.length * 2);
+            }
+            headers[headerCount * 4] = index;
+            headers[headerCount * 4 + 1] = nameEnd;
+            headers[headerCount * 4 + 2] = valueBegin;
+            headers[headerCount * 4 + 3] = valueEnd;
+            ++headerCount;
+            if (HttpRequest.equalsIgnoreCase(bytes, index, nameEnd, "Content-Length")) {
+                final int value = parseContentLength(bytes, valueBegin, valueEnd);
+                if (contentLength >= 0 && contentLength != value) {
+                    throw new HttpException(400, "Conflicting Content-Length.");
+                }
+                contentLength = value;
+            } else if (HttpRequest.equalsIgnoreCase(bytes, index, nameEnd, "Transfer-Encoding")) {
+                if (chunked) {
+                    throw new HttpException(400, "Transfer-Encoding after chunked.");
+                }
+                transferEncoding = true;
+                chunked = endsWithToken(bytes, valueBegin, valueEnd, "chunked");
+            } else if (HttpRequest.equalsIgnoreCase(bytes, index, nameEnd, "Connection")) {
+                close |= containsToken(bytes, valueBegin, valueEnd, "close");
+                keepAlive |= containsToken(bytes, valueBegin, valueEnd, "keep-alive");
+            }
+            index = lineFeed + 1;
+        }
+        if (transferEncoding && !chunked) {
+            throw new HttpException(501, "Transfer-Encoding not ending with chunked.");
+        }
+        if (chunked && contentLength >= 0) {
+            throw new HttpException(400, "Both Content-Length and chunked Transfer-Encoding.");
+        }
+
+        final int bodyBegin = index;
+        final int bodyLength;
+        if (chunked) {
+            if (scanChunks(bytes, bodyBegin, length, false) < 0L) {
+                return null;
+            }
+            final long result = scanChunks(bytes, bodyBegin, length, true);
+            bodyLength = (int) (result >>> 32);
+            index = (int) result;
+        } else if (contentLength > 0) {
+            if ((long) bodyBegin + contentLength > bytes.maxSize()) {
+                throw new HttpException(413, "Payload Too Large");
+            }
+            if (bodyBegin + contentLength > length) {
+                return null;
+            }
+            bodyLength = contentLength;
+            index += contentLength;
+        } else {
+            bodyLength = 0;
+        }
+        return new HttpRequest(bytes, methodBegin, methodEnd, targetBegin, targetEnd, minorVersion,
+                headers, headerCount, bodyBegin, bodyLength, index,
+                minorVersion > 0 ? !close : keepAlive && !close, chunked);
+    }
+}
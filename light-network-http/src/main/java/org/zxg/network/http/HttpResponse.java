@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.http;
+
+import org.zxg.network.core.Bytes;
+import org.zxg.network.core.CompositeBytes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class HttpResponse {
+
+    private static final Bytes CRLF = new Bytes("\r\n".getBytes(StandardCharsets.ISO_8859_1), true);
+    private static final Bytes LAST_CHUNK = new Bytes("0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1), true);
+
+    private final int status;
+    private final String reason;
+    private final List<String> headers = new ArrayList<>();
+    private final List<Bytes> body = new ArrayList<>();
+    private boolean chunked = false;
+    private Bytes[] encoded;
+
+    public static String reasonPhrase(int status) {
+        switch (status) {
+            case 100:
+                return "Continue";
+            case 200:
+                return "OK";
+            case 201:
+                return "Created";
+            case 204:
+                return "No Content";
+            case 301:
+                return "Moved Permanently";
+            case 302:
+                return "Found";
+            case 304:
+                return "Not Modified";
+            case 400:
+                return "Bad Request";
+            case 401:
+                return "Unauthorized";
+            case 403:
+                return "Forbidden";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 408:
+                return "Request Timeout";
+            case 413:
+                return "Payload Too Large";
+            case 431:
+                return "Request Header Fields Too Large";
+            case 500:
+                return "Internal Server Error";
+            case 501:
+                return "Not Implemented";
+            case 503:
+                return "Service Unavailable";
+            case 505:
+                return "HTTP Version Not Supported";
+            default:
+                return "";
+        }
+    }
+
+    public HttpResponse(int status) {
+        this(status, reasonPhrase(status));
+    }
+
+    public HttpResponse(int status, String reason) {
+        this.status = status;
+        this.reason = reason;
+    }
+
+    private void checkNotEncoded() {
+        if (encoded != null) {
+            throw new IllegalStateException("The response has been pre-encoded.");
+        }
+    }
+
+    public HttpResponse header(String name, String value) {
+        checkNotEncoded();
+        headers.add(name);
+        headers.add(value);
+        return this;
+    }
+
+    public HttpResponse body(Bytes bytes) {
+        checkNotEncoded();
+        body.add(bytes);
+        return this;
+    }
+
+    public HttpResponse body(byte[] elements) {
+        return body(new Bytes(elements, false));
+    }
+
+    public HttpResponse body(String text) {
+        return body(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public HttpResponse chunked(boolean chunked) {
+        checkNotEncoded();
+        this.chunked = chunked;
+        return this;
+    }
+
+    public HttpResponse preEncode() {
+        if (null == encoded) {
+            final Bytes[] variants = new Bytes[4];
+            for (int index = 0; index < variants.length; ++index) {
+                variants[index] = encode((index & 1) != 0, (index & 2) >> 1).flatten(true);
+            }
+            encoded = variants;
+        }
+        return this;
+    }
+
+    public boolean isPreEncoded() {
+        return encoded != null;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public String reason() {
+        return reason;
+    }
+
+    public boolean isChunked() {
+        return chunked;
+    }
+
+    public CompositeBytes encode(boolean close, int minorVersion) {
+        if (encoded != null) {
+            return new CompositeBytes(encoded[(close ? 1 : 0) | (minorVersion > 0 ? 2 : 0)].duplicate());
+        }
+        final boolean chunkedBody = chunked && minorVersion > 0;
+        final StringBuilder head = new StringBuilder(128);
+        head.append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n");
+        for (int index = 0; index < headers.size(); index += 2) {
+            head.append(headers.get(index)).append(": ").append(headers.get(index + 1)).append("\r\n");
+        }
+        if (chunkedBody) {
+            head.append("Transfer-Encoding: chunked\r\n");
+        } else {
+            int contentLength = 0;
+            for (Bytes part : body) {
+                contentLength += part.length();
+            }
+            head.append("Content-Length: ").append(contentLength).append("\r\n");
+        }
+        if (close) {
+            head.append("Connection: close\r\n");
+        } else if (0 == minorVersion) {
+            head.append("Connection: keep-alive\r\n");
+        }
+        head.append("\r\n");
+        final CompositeBytes bytes = new CompositeBytes(
+                new Bytes(head.toString().getBytes(StandardCharsets.ISO_8859_1), false));
+        for (Bytes part : body) {
+            if (chunkedBody) {
+                if (0 == part.length()) {
+                    continue;
+                }
+                bytes.add(new Bytes((Integer.toHexString(part.length()) + "\r\n")
+                        .getBytes(StandardCharsets.ISO_8859_1), false));
+                bytes.add(part.duplicate());
+                bytes.add(CRLF.duplicate());
+            } else {
+                bytes.add(part.duplicate());
+            }
+        }
+        if (chunkedBody) {
+            bytes.add(LAST_CHUNK.duplicate());
+        }
+        return bytes;
+    }
+}
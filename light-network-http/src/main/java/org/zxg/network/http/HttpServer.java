@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2020, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.network.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zxg.network.core.Bytes;
+import org.zxg.network.core.BytesOverflowException;
+import org.zxg.network.core.BytesPool;
+import org.zxg.network.core.CompositeBytes;
+import org.zxg.network.core.Connection;
+import org.zxg.network.core.ExecutionPolicy;
+import org.zxg.network.core.Server;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class HttpServer {
+
+    private static final Logger defaultLogger = LoggerFactory.getLogger(HttpServer.class);
+
+    public static final int DEFAULT_INITIAL_BUFFER_SIZE = 4096;
+    public static final int DEFAULT_MAX_REQUEST_SIZE = 1024 * 1024;
+    public static final int DEFAULT_MAX_PIPELINED_RESPONSES = 16;
+
+    private static final long LINGER_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+    private final Function<HttpRequest, CompletionStage<HttpResponse>> handler;
+    private final HttpRequestParser parser;
+    private final BytesPool pool;
+    private final int initialBufferSize;
+    private final int maxRequestSize;
+    private final int maxPipelinedResponses;
+    private final Logger logger;
+
+    public HttpServer(Function<HttpRequest, CompletionStage<HttpResponse>> handler) {
+        this(handler, new BytesPool(true), DEFAULT_INITIAL_BUFFER_SIZE, DEFAULT_MAX_REQUEST_SIZE,
+                DEFAULT_MAX_PIPELINED_RESPONSES, defaultLogger);
+    }
+
+    public HttpServer(Function<HttpRequest, CompletionStage<HttpResponse>> handler, BytesPool pool,
+                      int initialBufferSize, int maxRequestSize, int maxPipelinedResponses,
+                      Logger logger) {
+        this.handler = handler;
+        this.parser = new HttpRequestParser();
+        this.pool = pool;
+        this.initialBufferSize = initialBufferSize;
+        this.maxRequestSize = maxRequestSize;
+        this.maxPipelinedResponses = maxPipelinedResponses;
+        this.logger = logger;
+    }
+
+    public CompletableFuture<Void> serve(Server server) {
+        return server.serve(this::handle);
+    }
+
+    public CompletableFuture<Void> serve(Server server, ExecutionPolicy policy) {
+        return server.serve(this::handle, policy);
+    }
+
+    public CompletionStage<Void> handle(Connection connection) {
+        final Bytes buffer = pool.allocate(initialBufferSize, maxRequestSize);
+        buffer.removeRight(buffer.length());
+        final Exchange exchange = new Exchange(connection, buffer);
+        exchange.next();
+        return exchange.future.whenComplete((result, exc) -> buffer.free());
+    }
+
+    private class Exchange {
+
+        private final Connection connection;
+        private final Bytes buffer;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private CompositeBytes pendingResponses = new CompositeBytes();
+        private int pendingResponseCount = 0;
+
+        Exchange(Connection connection, Bytes buffer) {
+            this.connection = connection;
+            this.buffer = buffer;
+        }
+
+        void next() {
+            final HttpRequest request;
+            try {
+                request = parser.parse(buffer);
+            } catch (HttpException exc) {
+                respondError(exc.status(), exc.getMessage());
+                return;
+            }
+            if (null == request) {
+                if (pendingResponseCount > 0) {
+                    flush().thenRun(this::next);
+                } else {
+                    read();
+                }
+                return;
+            }
+            CompletionStage<HttpResponse> stage;
+            try {
+                stage = handler.apply(request);
+            } catch (Exception exc) {
+                final CompletableFuture<HttpResponse> failed = new CompletableFuture<>();
+                failed.completeExceptionally(exc);
+                stage = failed;
+            }
+            stage.whenComplete((response, exc) -> {
+                boolean close = !request.isKeepAlive();
+                if (exc != null) {
+                    logger.error(exc.getMessage(), exc);
+                    response = new HttpResponse(500);
+                    close = true;
+                } else if (null == response) {
+                    logger.error("The handler completed without a response.");
+                    response = new HttpResponse(500);
+                    close = true;
+                }
+                enqueue(response.encode(close, request.minorVersion()));
+                buffer.removeLeft(request.length());
+                if (close) {
+                    flush().thenRun(() -> future.complete(null));
+                } else if (pendingResponseCount < maxPipelinedResponses && buffer.length() > 0) {
+                    next();
+                } else {
+                    flush().thenRun(this::next);
+                }
+            });
+        }
+
+        private void read() {
+            final int length = buffer.length();
+            connection.readMore(buffer).whenComplete((bytes, exc) -> {
+                if (exc != null) {
+                    if (exc instanceof BytesOverflowException) {
+                        respondError(413, "Payload Too Large");
+                    } else {
+                        future.completeExceptionally(exc);
+                    }
+                } else if (buffer.length() == length) {
+                    future.complete(null);
+                } else {
+                    next();
+                }
+            });
+        }
+
+        private void enqueue(CompositeBytes response) {
+            for (Bytes component : response.components()) {
+                pendingResponses.add(component);
+            }
+            ++pendingResponseCount;
+        }
+
+        private CompletableFuture<Void> flush() {
+            final CompositeBytes responses = pendingResponses;
+            pendingResponses = new CompositeBytes();
+            pendingResponseCount = 0;
+            final CompletableFuture<Void> flushed = new CompletableFuture<>();
+            connection.write(responses).whenComplete((bytes, exc) -> {
+                if (exc != null) {
+                    future.completeExceptionally(exc);
+                } else {
+                    flushed.complete(null);
+                }
+            });
+            return flushed;
+        }
+
+        private void respondError(int status, String message) {
+            enqueue(new HttpResponse(status).header("Content-Type", "text/plain; charset=utf-8")
+                    .body(message).encode(true, 0));
+            flush().thenRun(() -> {
+                try {
+                    connection.shutdownOutput();
+                } catch (IOException exc) {
+                    future.complete(null);
+                    return;
+                }
+                linger(System.nanoTime() + LINGER_NANOS);
+            });
+        }
+
+        private void linger(long deadline) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                future.complete(null);
+                return;
+            }
+            buffer.removeRight(buffer.length());
+            connection.readMore(buffer, remaining, TimeUnit.NANOSECONDS).whenComplete((bytes, exc) -> {
+                if (exc != null || 0 == buffer.length()) {
+                    future.complete(null);
+                } else {
+                    linger(deadline);
+                }
+            });
+        }
+    }
+}